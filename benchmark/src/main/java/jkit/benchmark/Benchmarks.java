@@ -0,0 +1,45 @@
+package jkit.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. The arguments are the usual JMH command line options.
+ * Unless specified otherwise all benchmarks are run and the allocation rate is
+ * measured using the GC profiler.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public final class Benchmarks {
+
+  /** No constructor. */
+  private Benchmarks() {
+    // no constructor
+  }
+
+  /**
+   * Runs the benchmarks.
+   * 
+   * @param args The JMH command line options.
+   * @throws CommandLineOptionException When the options are invalid.
+   * @throws RunnerException When a benchmark fails.
+   */
+  public static void main(final String[] args)
+      throws CommandLineOptionException, RunnerException {
+    final CommandLineOptions cmd = new CommandLineOptions(args);
+    final ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+    if(cmd.getIncludes().isEmpty()) {
+      opts.include(Benchmarks.class.getPackage().getName() + "\\.");
+    }
+    if(cmd.getProfilers().isEmpty()) {
+      opts.addProfiler(GCProfiler.class);
+    }
+    new Runner(opts.build()).run();
+  }
+
+}
@@ -0,0 +1,208 @@
+package jkit.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import jkit.gfx.AbstractShapeDrawer;
+import jkit.gfx.Drawable;
+import jkit.gfx.EasyVisibleShapeDrawer;
+import jkit.gfx.SimpleShapeDrawer;
+import jkit.gfx.pen.ArrowPen;
+import jkit.gfx.pen.BloodTrailPen;
+import jkit.gfx.pen.CirclePen;
+import jkit.gfx.pen.CrayonPen;
+import jkit.gfx.pen.LinePen;
+import jkit.gfx.pen.PencilPen;
+import jkit.gfx.pen.SnowPen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating, measuring, and drawing {@link Drawable}s for every shape
+ * drawer and pen. The shape of the example is scaled to get shapes with
+ * different numbers of pen-steps. Drawing is performed on a headless
+ * {@link BufferedImage}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ShapeDrawerBenchmark {
+
+  /** The width and height of the image. */
+  public static final int IMAGE_SIZE = 1024;
+
+  /** The width and height of the clip of clipped drawing. */
+  public static final int CLIP_SIZE = 256;
+
+  /** The shape drawer or pen. */
+  @Param({ "simple", "easy", "pencil", "crayon", "blood", "arrow", "circle",
+    "line", "snow"})
+  public String drawer;
+
+  /** The scaling of the shape. */
+  @Param({ "0.25", "1", "4", "16"})
+  public double scale;
+
+  /** The shape drawer. */
+  private AbstractShapeDrawer shapeDrawer;
+
+  /** The shape. */
+  private Shape shape;
+
+  /** The drawable of the shape. */
+  private Drawable drawable;
+
+  /** The image. */
+  private BufferedImage img;
+
+  /** The graphics context of the image. */
+  private Graphics2D gfx;
+
+  /** The clipped graphics context of the image. */
+  private Graphics2D clipped;
+
+  /**
+   * Creates the shape drawer.
+   * 
+   * @param name The name of the shape drawer or pen.
+   * @return The shape drawer.
+   */
+  public static AbstractShapeDrawer createShapeDrawer(final String name) {
+    switch(name) {
+      case "simple":
+        return new SimpleShapeDrawer();
+      case "easy":
+        return new EasyVisibleShapeDrawer();
+      case "pencil":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new PencilPen());
+      case "crayon":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new CrayonPen(Color.GREEN, 5.0));
+      case "blood":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new BloodTrailPen());
+      case "arrow":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new ArrowPen());
+      case "circle":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new CirclePen());
+      case "line":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new LinePen());
+      case "snow":
+        return AbstractShapeDrawer.getShapeDrawerForPen(new SnowPen(
+            new SimpleShapeDrawer(new BasicStroke(5f), Color.BLACK),
+            5.0, 2.0, 45, true));
+      default:
+        throw new IllegalArgumentException("unknown drawer: " + name);
+    }
+  }
+
+  /**
+   * Creates the shape of the example.
+   * 
+   * @param scale The scaling of the shape.
+   * @return The shape.
+   */
+  public static Shape createShape(final double scale) {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(100.0, 100.0);
+    path.lineTo(150.0, 200.0);
+    path.quadTo(250.0, 250.0, 300.0, 150.0);
+    path.curveTo(400.0, 80.0, 450.0, 160.0, 500.0, 400.0);
+    path.moveTo(600.0, 300.0);
+    path.quadTo(650.0, 250.0, 700.0, 300.0);
+    path.quadTo(700.0, 350.0, 650.0, 350.0);
+    path.closePath();
+    path.moveTo(200.0, 350.0);
+    path.quadTo(200.0, 300.0, 250.0, 300.0);
+    path.quadTo(300.0, 300.0, 300.0, 350.0);
+    path.quadTo(300.0, 400.0, 250.0, 400.0);
+    path.quadTo(200.0, 400.0, 200.0, 350.0);
+    return AffineTransform.getScaleInstance(scale, scale).createTransformedShape(path);
+  }
+
+  /** Sets up the benchmark. */
+  @Setup
+  public void setup() {
+    shapeDrawer = createShapeDrawer(drawer);
+    shape = createShape(scale);
+    drawable = shapeDrawer.getDrawable(shape);
+    drawable.getBounds();
+    img = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+    gfx = img.createGraphics();
+    gfx.setColor(Color.BLACK);
+    clipped = img.createGraphics();
+    clipped.setColor(Color.BLACK);
+    clipped.clipRect(0, 0, CLIP_SIZE, CLIP_SIZE);
+  }
+
+  /** Tears down the benchmark. */
+  @TearDown
+  public void tearDown() {
+    gfx.dispose();
+    clipped.dispose();
+  }
+
+  /**
+   * Measures creating a drawable.
+   * 
+   * @return The drawable.
+   */
+  @Benchmark
+  public Drawable getDrawable() {
+    return shapeDrawer.getDrawable(shape);
+  }
+
+  /**
+   * Measures creating a drawable and computing its bounding box.
+   * 
+   * @return The bounding box.
+   */
+  @Benchmark
+  public Rectangle2D getBounds() {
+    return shapeDrawer.getDrawable(shape).getBounds();
+  }
+
+  /**
+   * Measures drawing a drawable.
+   * 
+   * @return The image.
+   */
+  @Benchmark
+  public BufferedImage draw() {
+    drawable.draw(gfx);
+    return img;
+  }
+
+  /**
+   * Measures drawing a drawable when only a part of the image is visible.
+   * 
+   * @return The image.
+   */
+  @Benchmark
+  public BufferedImage drawClipped() {
+    drawable.draw(clipped);
+    return img;
+  }
+
+}
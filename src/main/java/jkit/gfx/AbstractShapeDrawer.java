@@ -18,6 +18,29 @@ public abstract class AbstractShapeDrawer {
   /** Whether the easter egg may be used. */
   public static boolean beSerious = true;
 
+  /** The metrics or <code>null</code> if no metrics are collected. */
+  private volatile RenderMetrics metrics;
+
+  /**
+   * Setter.
+   * 
+   * @param metrics The metrics receiving measurements of the
+   *          {@link Drawable}s of this shape drawer or <code>null</code> if no
+   *          measurements should be taken.
+   */
+  public void setMetrics(final RenderMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The metrics or <code>null</code> if no metrics are collected.
+   */
+  public RenderMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * Generates a {@link Drawable} using this shape drawer.
    * 
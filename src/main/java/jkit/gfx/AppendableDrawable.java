@@ -0,0 +1,79 @@
+package jkit.gfx;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A {@link Drawable} of a shape that can grow. New parts of the shape are
+ * appended without processing the existing parts again. The bounding box is
+ * updated when the shape grows and is therefore not cached. {@link Scene}s
+ * need to be updated by adding the drawable again after it has grown. An
+ * appendable drawable must not be modified while it is drawn.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public abstract class AppendableDrawable extends Drawable {
+
+  /**
+   * Starts a new line at the given position.
+   * 
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   */
+  public abstract void moveTo(double x, double y);
+
+  /**
+   * Continues the current line to the given position.
+   * 
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   */
+  public abstract void lineTo(double x, double y);
+
+  /**
+   * Appends the outline of a shape. The shape starts a new line when it begins
+   * with a move-to.
+   * 
+   * @param s The shape.
+   */
+  public abstract void append(Shape s);
+
+  /**
+   * Draws to the given graphics context using a retained image. Parts that
+   * have been drawn before are taken from the image and only newly appended
+   * parts are drawn. The image covers the clip of the graphics context and
+   * is drawn again completely when the transformation, the clip, or the
+   * appearance of the drawn parts changes.
+   * Without a clip this method behaves like {@link #draw(Graphics2D)}.
+   * 
+   * @param gfx The graphics context.
+   */
+  public abstract void drawRetained(Graphics2D gfx);
+
+  /** Discards the retained image. */
+  public abstract void clearRetained();
+
+  /**
+   * Computes the bounding box. The bounding box is computed incrementally and
+   * is not cached since it changes when the shape grows.
+   * 
+   * @return The bounding box.
+   */
+  @Override
+  public Rectangle2D getBounds() {
+    return computeBounds();
+  }
+
+  /**
+   * The conservative bounding box is the actual bounding box and is not
+   * cached either.
+   * 
+   * @return The bounding box.
+   */
+  @Override
+  public Rectangle2D getConservativeBounds() {
+    return getBounds();
+  }
+
+}
@@ -0,0 +1,249 @@
+package jkit.gfx;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@link Drawable} that draws another {@link Drawable} once into an image at
+ * the current device scale and draws the image afterwards. The image is drawn
+ * again when the scaling or rotation of the transformation, the paint, the
+ * stroke, or the rendering hints of the graphics context change. Translations
+ * only move the image to the closest pixel. Changes to the wrapped
+ * {@link Drawable}, e.g., of its pen, are detected by its
+ * {@link Drawable#getVersion() version}. Other changes must be signaled by
+ * calling {@link #invalidate()}. The memory of all images is limited by a
+ * {@link RasterCache}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class CachedDrawable extends Drawable {
+
+  /**
+   * An image of the drawable and the state it was drawn with.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Raster {
+
+    /** The image. */
+    final BufferedImage image;
+
+    /** The version of the drawable when drawing the image. */
+    final long version;
+
+    /** The transformation without translation. */
+    final AffineTransform linear;
+
+    /** The paint. */
+    final Paint paint;
+
+    /** The stroke. */
+    final Stroke stroke;
+
+    /** The rendering hints. */
+    final RenderingHints hints;
+
+    /** The horizontal offset of the image relative to the translation. */
+    final double dx;
+
+    /** The vertical offset of the image relative to the translation. */
+    final double dy;
+
+    /**
+     * Creates a raster.
+     * 
+     * @param image The image.
+     * @param version The version of the drawable when drawing the image.
+     * @param at The transformation.
+     * @param gfx The graphics context.
+     * @param area The device area of the image.
+     */
+    public Raster(final BufferedImage image, final long version,
+        final AffineTransform at, final Graphics2D gfx, final Rectangle area) {
+      this.image = image;
+      this.version = version;
+      linear = getLinear(at);
+      paint = gfx.getPaint();
+      stroke = gfx.getStroke();
+      hints = gfx.getRenderingHints();
+      dx = area.x - at.getTranslateX();
+      dy = area.y - at.getTranslateY();
+    }
+
+    /**
+     * Whether the image can be used for the graphics context.
+     * 
+     * @param version The current version of the drawable.
+     * @param at The transformation of the graphics context.
+     * @param gfx The graphics context.
+     * @return Whether the image was drawn with the same state.
+     */
+    public boolean matches(final long version, final AffineTransform at,
+        final Graphics2D gfx) {
+      return this.version == version
+          && linear.getScaleX() == at.getScaleX()
+          && linear.getShearY() == at.getShearY()
+          && linear.getShearX() == at.getShearX()
+          && linear.getScaleY() == at.getScaleY()
+          && equal(paint, gfx.getPaint())
+          && equal(stroke, gfx.getStroke())
+          && equal(hints, gfx.getRenderingHints());
+    }
+
+    /**
+     * Draws the image.
+     * 
+     * @param gfx The graphics context.
+     * @param at The transformation of the graphics context.
+     */
+    public void draw(final Graphics2D gfx, final AffineTransform at) {
+      final Graphics2D g = (Graphics2D) gfx.create();
+      g.setTransform(new AffineTransform());
+      g.drawImage(image, (int) Math.round(at.getTranslateX() + dx),
+          (int) Math.round(at.getTranslateY() + dy), null);
+      g.dispose();
+    }
+
+  }
+
+  /** The wrapped drawable. */
+  private final Drawable drawable;
+
+  /** The cache limiting the memory of the images. */
+  private final RasterCache cache;
+
+  /** The current image or <code>null</code>. */
+  private volatile Raster raster;
+
+  /**
+   * Creates a cached drawable using the default {@link RasterCache}.
+   * 
+   * @param drawable The drawable.
+   */
+  public CachedDrawable(final Drawable drawable) {
+    this(drawable, RasterCache.getDefault());
+  }
+
+  /**
+   * Creates a cached drawable.
+   * 
+   * @param drawable The drawable.
+   * @param cache The cache limiting the memory of the images.
+   */
+  public CachedDrawable(final Drawable drawable, final RasterCache cache) {
+    if(drawable == null) throw new NullPointerException("drawable");
+    if(cache == null) throw new NullPointerException("cache");
+    this.drawable = drawable;
+    this.cache = cache;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The wrapped drawable.
+   */
+  public Drawable getDrawable() {
+    return drawable;
+  }
+
+  /**
+   * Computes the transformation without translation.
+   * 
+   * @param at The transformation.
+   * @return The linear part of the transformation.
+   */
+  static AffineTransform getLinear(final AffineTransform at) {
+    return new AffineTransform(at.getScaleX(), at.getShearY(),
+        at.getShearX(), at.getScaleY(), 0.0, 0.0);
+  }
+
+  /**
+   * Whether two objects are equal.
+   * 
+   * @param a The first object. May be <code>null</code>.
+   * @param b The second object. May be <code>null</code>.
+   * @return Whether both objects are equal.
+   */
+  static boolean equal(final Object a, final Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public void draw(final Graphics2D gfx) {
+    final AffineTransform at = gfx.getTransform();
+    // changes while drawing make the new image stale
+    final long version = drawable.getVersion();
+    final Raster r = raster;
+    if(r != null && r.matches(version, at, gfx)) {
+      cache.touch(this);
+      r.draw(gfx, at);
+      return;
+    }
+    final Rectangle2D bounds = getBounds();
+    if(bounds.isEmpty()) {
+      drawable.draw(gfx);
+      return;
+    }
+    final Rectangle area = at.createTransformedShape(bounds).getBounds();
+    // leave room for anti-aliasing
+    area.grow(1, 1);
+    final long bytes = area.width * (long) area.height * 4L;
+    if(bytes > cache.getBudget()) {
+      drawable.draw(gfx);
+      return;
+    }
+    final BufferedImage img = new BufferedImage(area.width, area.height,
+        BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.setRenderingHints(gfx.getRenderingHints());
+    g.setPaint(gfx.getPaint());
+    g.setStroke(gfx.getStroke());
+    g.setFont(gfx.getFont());
+    g.translate(-area.x, -area.y);
+    g.transform(at);
+    drawable.draw(g);
+    g.dispose();
+    final Raster res = new Raster(img, version, at, gfx, area);
+    synchronized(cache) {
+      if(cache.put(this, bytes)) {
+        raster = res;
+      }
+    }
+    res.draw(gfx, at);
+  }
+
+  /** Discards the image. The image is drawn again the next time. */
+  public void invalidate() {
+    synchronized(cache) {
+      raster = null;
+      cache.remove(this);
+    }
+  }
+
+  /** Is called by the cache when the image is discarded. */
+  void evicted() {
+    raster = null;
+  }
+
+  @Override
+  public long getVersion() {
+    return drawable.getVersion();
+  }
+
+  @Override
+  protected Rectangle2D computeBounds() {
+    return drawable.getBounds();
+  }
+
+  @Override
+  protected Rectangle2D computeConservativeBounds() {
+    return drawable.getConservativeBounds();
+  }
+
+}
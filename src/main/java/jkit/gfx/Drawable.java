@@ -13,6 +13,9 @@ public abstract class Drawable {
   /** The bounding box cache. */
   private Rectangle2D box;
 
+  /** The conservative bounding box cache. */
+  private Rectangle2D conservative;
+
   /**
    * Draws to the given graphics context.
    * 
@@ -20,6 +23,19 @@ public abstract class Drawable {
    */
   public abstract void draw(Graphics2D gfx);
 
+  /**
+   * Getter.
+   * 
+   * @return The version of the appearance. The version changes whenever the
+   *         drawable would be drawn differently, e.g., when the pen drawing
+   *         it has been changed. Images of the drawable are stale when the
+   *         version differs from the version at the time of drawing. The
+   *         default never changes.
+   */
+  public long getVersion() {
+    return 0L;
+  }
+
   /**
    * Computes the bounding box. The bounding box does not change and will be
    * cached.
@@ -40,8 +56,34 @@ public abstract class Drawable {
    */
   protected abstract Rectangle2D computeBounds();
 
+  /**
+   * Computes a bounding box that contains the actual bounding box. It may be
+   * larger but is usually much cheaper to compute and is therefore used to
+   * decide whether the {@link Drawable} is visible. The bounding box does not
+   * change and will be cached.
+   * 
+   * @return The conservative bounding box.
+   */
+  public Rectangle2D getConservativeBounds() {
+    if(conservative == null) {
+      conservative = computeConservativeBounds();
+    }
+    return conservative;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Computes the conservative bounding box. The default is the actual
+   *         bounding box.
+   */
+  protected Rectangle2D computeConservativeBounds() {
+    return getBounds();
+  }
+
   /**
    * Draws to the given graphics context if the {@link Drawable} is visible.
+   * The visibility is decided by the conservative bounding box.
    * 
    * @param gfx The graphics context.
    * @param viewport The current viewport of the graphics context. The viewport
@@ -49,7 +91,7 @@ public abstract class Drawable {
    *          always drawn.
    */
   public void drawIfVisible(final Graphics2D gfx, final Rectangle2D viewport) {
-    if(viewport != null && !viewport.intersects(getBounds())) return;
+    if(viewport != null && !viewport.intersects(getConservativeBounds())) return;
     draw(gfx);
   }
 
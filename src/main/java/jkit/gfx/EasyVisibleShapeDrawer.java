@@ -67,12 +67,17 @@ public class EasyVisibleShapeDrawer extends AbstractShapeDrawer {
 
       @Override
       public void draw(final Graphics2D gfx) {
+        final RenderMetrics m = getMetrics();
+        final long start = m != null ? System.nanoTime() : 0L;
         final Graphics2D g = (Graphics2D) gfx.create();
         g.setColor(bg);
         g.fill(outerShape);
         g.setColor(fg);
         g.fill(innerShape);
         g.dispose();
+        if(m != null) {
+          m.drawn(System.nanoTime() - start);
+        }
       }
 
       @Override
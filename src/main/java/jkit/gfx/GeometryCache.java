@@ -0,0 +1,179 @@
+package jkit.gfx;
+
+import java.awt.Shape;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * A cache for the flattened and measured geometry of shapes. Shapes are
+ * identified by their identity and the flatness used to flatten them. The
+ * cache has a bounded size and evicts the least recently used geometry. Note
+ * that changes to a cached shape are not detected. Such shapes must be removed
+ * via {@link #invalidate(Shape)}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public final class GeometryCache {
+
+  /** The default maximal number of cached shapes. */
+  public static final int DEFAULT_SIZE = 256;
+
+  /** The default cache. */
+  private static final GeometryCache DEFAULT = new GeometryCache(DEFAULT_SIZE);
+
+  /**
+   * Getter.
+   * 
+   * @return The cache shared by all {@link PenShapeDrawer}.
+   */
+  public static GeometryCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * The key of a cached geometry.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Key {
+
+    /** The shape. */
+    final Shape shape;
+
+    /** The flatness. */
+    final double flatness;
+
+    /**
+     * Creates a key.
+     * 
+     * @param shape The shape.
+     * @param flatness The flatness.
+     */
+    public Key(final Shape shape, final double flatness) {
+      this.shape = shape;
+      this.flatness = flatness;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(obj == this) return true;
+      if(!(obj instanceof Key)) return false;
+      final Key other = (Key) obj;
+      return shape == other.shape
+          && Double.doubleToLongBits(flatness) == Double.doubleToLongBits(other.flatness);
+    }
+
+    @Override
+    public int hashCode() {
+      final long bits = Double.doubleToLongBits(flatness);
+      return System.identityHashCode(shape) * 31 + (int) (bits ^ (bits >>> 32));
+    }
+
+  }
+
+  /** The cached geometries in access order. */
+  private final LinkedHashMap<Key, SegmentBuffer> map;
+
+  /** The maximal number of cached geometries. */
+  private volatile int maxSize;
+
+  /**
+   * Creates a geometry cache.
+   * 
+   * @param maxSize The maximal number of cached geometries.
+   */
+  public GeometryCache(final int maxSize) {
+    map = new LinkedHashMap<Key, SegmentBuffer>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = -1498427153069683315L;
+
+      @Override
+      protected boolean removeEldestEntry(final Entry<Key, SegmentBuffer> eldest) {
+        return size() > GeometryCache.this.maxSize;
+      }
+
+    };
+    setMaxSize(maxSize);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param shape The shape.
+   * @param flatness The flatness.
+   * @return The flattened geometry of the shape. The geometry must not be
+   *         modified.
+   */
+  SegmentBuffer get(final Shape shape, final double flatness) {
+    final Key key = new Key(shape, flatness);
+    synchronized(map) {
+      final SegmentBuffer segs = map.get(key);
+      if(segs != null) return segs;
+    }
+    // flatten outside the lock
+    final SegmentBuffer segs = SegmentBuffer.create(shape, flatness);
+    synchronized(map) {
+      final SegmentBuffer other = map.get(key);
+      if(other != null) return other;
+      map.put(key, segs);
+    }
+    return segs;
+  }
+
+  /**
+   * Removes all geometries of the given shape. This method must be called when
+   * a cached shape gets modified.
+   * 
+   * @param shape The shape.
+   */
+  public void invalidate(final Shape shape) {
+    synchronized(map) {
+      final Iterator<Key> it = map.keySet().iterator();
+      while(it.hasNext()) {
+        if(it.next().shape == shape) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /** Removes all geometries. */
+  public void clear() {
+    synchronized(map) {
+      map.clear();
+    }
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param maxSize The maximal number of cached geometries. Superfluous
+   *          geometries are removed when the next geometry is added.
+   */
+  public void setMaxSize(final int maxSize) {
+    if(maxSize < 1) throw new IllegalArgumentException("maxSize: " + maxSize);
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal number of cached geometries.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cached geometries.
+   */
+  public int size() {
+    synchronized(map) {
+      return map.size();
+    }
+  }
+
+}
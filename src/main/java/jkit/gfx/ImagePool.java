@@ -0,0 +1,254 @@
+package jkit.gfx;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded pool of ARGB images. Released images are kept for later requests
+ * of the same size bucket until the maximal number of pooled images is
+ * reached. The width and height of images are rounded up to multiples of the
+ * granularity of the pool so that images of similar sizes can be shared. The
+ * pool can be used by multiple threads at once.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class ImagePool {
+
+  /** The pooled images by size. */
+  private final Map<Long, ArrayDeque<BufferedImage>> images = new HashMap<>();
+
+  /** The maximal number of pooled images. */
+  private final int maxImages;
+
+  /** The granularity of image sizes. */
+  private final int granularity;
+
+  /** The number of pooled images. */
+  private int count;
+
+  /** The number of requested images. */
+  private long acquired;
+
+  /** The number of requested images that were taken from the pool. */
+  private long reused;
+
+  /** The number of released images. */
+  private long released;
+
+  /** The number of released images that were discarded. */
+  private long discarded;
+
+  /**
+   * Creates an image pool returning images of exactly the requested size.
+   * 
+   * @param maxImages The maximal number of pooled images.
+   */
+  public ImagePool(final int maxImages) {
+    this(maxImages, 1);
+  }
+
+  /**
+   * Creates an image pool.
+   * 
+   * @param maxImages The maximal number of pooled images.
+   * @param granularity The width and height of images are rounded up to
+   *          multiples of this value.
+   */
+  public ImagePool(final int maxImages, final int granularity) {
+    if(maxImages < 0) throw new IllegalArgumentException("maxImages: " + maxImages);
+    if(granularity <= 0) throw new IllegalArgumentException(
+        "granularity: " + granularity);
+    this.maxImages = maxImages;
+    this.granularity = granularity;
+  }
+
+  /**
+   * Rounds a size up to the granularity.
+   * 
+   * @param size The size.
+   * @return The size of the bucket.
+   */
+  private int round(final int size) {
+    return (size + granularity - 1) / granularity * granularity;
+  }
+
+  /**
+   * Computes the key of an image size.
+   * 
+   * @param width The width.
+   * @param height The height.
+   * @return The key.
+   */
+  private static Long key(final int width, final int height) {
+    return ((long) width << 32) | height;
+  }
+
+  /**
+   * Obtains an image. The content of a reused image is not cleared.
+   * 
+   * @param width The width.
+   * @param height The height.
+   * @return An image that is at least as large as the given size. The size is
+   *         rounded up to the granularity of the pool.
+   */
+  public BufferedImage acquire(final int width, final int height) {
+    return acquire(width, height, null);
+  }
+
+  /**
+   * Obtains an image. The content of a reused image is not cleared.
+   * 
+   * @param width The width.
+   * @param height The height.
+   * @param metrics The metrics receiving whether the image was taken from the
+   *          pool or <code>null</code>.
+   * @return An image that is at least as large as the given size. The size is
+   *         rounded up to the granularity of the pool.
+   */
+  public BufferedImage acquire(final int width, final int height,
+      final RenderMetrics metrics) {
+    final int w = round(width);
+    final int h = round(height);
+    BufferedImage res = null;
+    synchronized(this) {
+      ++acquired;
+      final Long key = key(w, h);
+      final ArrayDeque<BufferedImage> queue = images.get(key);
+      if(queue != null) {
+        res = queue.pop();
+        // empty buckets are removed so that the map only holds pooled sizes
+        if(queue.isEmpty()) {
+          images.remove(key);
+        }
+        --count;
+        ++reused;
+      }
+    }
+    if(metrics != null) {
+      if(res != null) {
+        metrics.poolHit();
+      } else {
+        metrics.poolMiss();
+      }
+    }
+    return res != null ? res : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  /**
+   * Returns an image to the pool. The image must not be used afterwards.
+   * 
+   * @param img The image obtained by {@link #acquire(int, int)}.
+   */
+  public synchronized void release(final BufferedImage img) {
+    ++released;
+    if(count >= maxImages) {
+      ++discarded;
+      return;
+    }
+    final Long key = key(img.getWidth(), img.getHeight());
+    ArrayDeque<BufferedImage> queue = images.get(key);
+    if(queue == null) {
+      queue = new ArrayDeque<>();
+      images.put(key, queue);
+    }
+    queue.push(img);
+    ++count;
+  }
+
+  /** Discards all pooled images. */
+  public synchronized void clear() {
+    images.clear();
+    count = 0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal number of pooled images.
+   */
+  public int getMaxImages() {
+    return maxImages;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The granularity of image sizes.
+   */
+  public int getGranularity() {
+    return granularity;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of pooled images.
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of sizes for which images are pooled.
+   */
+  synchronized int getBucketCount() {
+    return images.size();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of requested images.
+   */
+  public synchronized long getAcquireCount() {
+    return acquired;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of requested images that were taken from the pool.
+   */
+  public synchronized long getReuseCount() {
+    return reused;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of released images.
+   */
+  public synchronized long getReleaseCount() {
+    return released;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of released images that were discarded because the
+   *         pool was full.
+   */
+  public synchronized long getDiscardCount() {
+    return discarded;
+  }
+
+  /** Resets the counters of requested and released images. */
+  public synchronized void resetCounts() {
+    acquired = 0;
+    reused = 0;
+    released = 0;
+    discarded = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return getClass().getSimpleName() + "[pooled=" + count + ", acquired=" + acquired
+        + ", reused=" + reused + ", released=" + released
+        + ", discarded=" + discarded + "]";
+  }
+
+}
@@ -1,15 +1,19 @@
 package jkit.gfx;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jkit.gfx.pen.Pen;
 
@@ -20,12 +24,58 @@ import jkit.gfx.pen.Pen;
  */
 public final class PenShapeDrawer extends AbstractShapeDrawer {
 
+  /**
+   * The default number of segments starting from which bounding boxes are
+   * computed in parallel.
+   * 
+   * @see #setParallelBoundsThreshold(int)
+   */
+  public static final int DEFAULT_PARALLEL_BOUNDS_THRESHOLD = 4096;
+
+  /** The number of segments processed by one parallel bounds task. */
+  private static final int BOUNDS_CHUNK_SIZE = 1024;
+
+  /** The number of flattenings cached by every drawable. */
+  private static final int FLATTENING_CACHE_SIZE = 4;
+
+  /**
+   * The default level-of-detail threshold of new drawers in device pixels. By
+   * default the pen is always used.
+   * 
+   * @see #setLodThreshold(double)
+   */
+  public static final double DEFAULT_LOD_THRESHOLD = 0.0;
+
   /** The pen. */
   protected final Pen pen;
 
   /** The maximal segment length. */
   protected final double segLen;
 
+  /** The extent of a pen-step or NaN if it is not computed yet. */
+  private volatile double stepExtent = Double.NaN;
+
+  /** The level-of-detail threshold in device pixels. */
+  private volatile double lodThreshold = DEFAULT_LOD_THRESHOLD;
+
+  /** The number of changes of the drawer that alter drawn shapes. */
+  private final AtomicLong changes = new AtomicLong();
+
+  /** The number of segments starting from which bounds are parallel. */
+  private volatile int parallelBoundsThreshold = DEFAULT_PARALLEL_BOUNDS_THRESHOLD;
+
+  /** Whether the flattened geometry is shared with other drawers. */
+  private volatile boolean shareGeometry;
+
+  /** Whether pen-steps are placed by the arc length of whole lines. */
+  private volatile boolean continuousSteps;
+
+  /** The flatness in device pixels or <code>0</code>. */
+  private volatile double deviceFlatness;
+
+  /** The simplification tolerance in device pixels or <code>0</code>. */
+  private volatile double simplifyTolerance;
+
   /**
    * Creates a shape drawer for the given pen.
    * 
@@ -38,405 +88,1253 @@ public final class PenShapeDrawer extends AbstractShapeDrawer {
   }
 
   /**
-   * A segment of an path iterator.
+   * {@inheritDoc} The shape is split into segments when the drawable is drawn
+   * or its exact bounding box is requested for the first time.
+   */
+  @Override
+  public Drawable getDrawable(final Shape outline) {
+    return new PenDrawable(outline, continuousSteps);
+  }
+
+  /**
+   * Setter.
    * 
-   * @author Joschi <josua.krause@gmail.com>
+   * @param lodThreshold The size of a pen-step in device pixels below which
+   *          shapes are drawn as a plain stroked outline instead of using the
+   *          pen. The size of a pen-step is the larger of the segment length
+   *          and the diameter of the area the pen can draw on in one step, so
+   *          that wide pens keep being drawn. The outline uses the color and
+   *          stroke set by the pen when preparing. A value of <code>0</code>
+   *          always uses the pen.
    */
-  private final class Segment {
+  public void setLodThreshold(final double lodThreshold) {
+    if(lodThreshold < 0) throw new IllegalArgumentException(
+        "lodThreshold: " + lodThreshold);
+    this.lodThreshold = lodThreshold;
+    changes.incrementAndGet();
+  }
 
-    /** The current position. */
-    private final Point2D cur;
+  /**
+   * Getter.
+   * 
+   * @return The size of a pen-step in device pixels below which shapes are
+   *         drawn as a plain stroked outline.
+   */
+  public double getLodThreshold() {
+    return lodThreshold;
+  }
 
-    /** Whether the segment is a move operation. */
-    private final boolean isMove;
+  /**
+   * Setter.
+   * 
+   * @param parallelBoundsThreshold The number of segments starting from which
+   *          bounding boxes are computed in parallel. The bounding boxes of
+   *          the pen may then be requested concurrently.
+   */
+  public void setParallelBoundsThreshold(final int parallelBoundsThreshold) {
+    if(parallelBoundsThreshold < 1) throw new IllegalArgumentException(
+        "parallelBoundsThreshold: " + parallelBoundsThreshold);
+    this.parallelBoundsThreshold = parallelBoundsThreshold;
+  }
 
-    /** Whether this segment is a first segment of a line. */
-    private final boolean isFirst;
+  /**
+   * Getter.
+   * 
+   * @return The number of segments starting from which bounding boxes are
+   *         computed in parallel.
+   */
+  public int getParallelBoundsThreshold() {
+    return parallelBoundsThreshold;
+  }
 
-    /** The previous position. */
-    private final Point2D last;
+  /**
+   * Setter.
+   * 
+   * @param shareGeometry Whether the flattened geometry of shapes is shared
+   *          with other drawers via {@link GeometryCache#getDefault()}. Shapes
+   *          must not be modified after drawing them when this is enabled.
+   */
+  public void setShareGeometry(final boolean shareGeometry) {
+    this.shareGeometry = shareGeometry;
+  }
 
-    /** The current position of the last move-to segment. */
-    private final Point2D curMoveTo;
+  /**
+   * Getter.
+   * 
+   * @return Whether the flattened geometry of shapes is shared with other
+   *         drawers.
+   */
+  public boolean isShareGeometry() {
+    return shareGeometry;
+  }
 
-    /** The affine transform of this segment. */
-    private final AffineTransform at;
+  /**
+   * Setter.
+   * 
+   * @param continuousSteps Whether pen-steps are placed every segment length
+   *          along the whole line instead of starting anew at every flattened
+   *          segment. Dense polylines and flattened curves then get a number
+   *          of pen-steps proportional to their length instead of one step
+   *          per vertex. The rotation of a step follows the line across
+   *          vertices. Only drawables created afterwards are affected.
+   *          Appendable drawables always start anew at every segment.
+   */
+  public void setContinuousSteps(final boolean continuousSteps) {
+    this.continuousSteps = continuousSteps;
+  }
 
-    /** Whether this segment is a no-op. */
-    private final boolean isNop;
+  /**
+   * Getter.
+   * 
+   * @return Whether pen-steps are placed along the whole line.
+   */
+  public boolean isContinuousSteps() {
+    return continuousSteps;
+  }
 
-    /** Whether this segment is a last segment of a line. */
-    private boolean isLast;
+  /**
+   * Setter.
+   * 
+   * @param deviceFlatness The maximal distance in device pixels between a
+   *          curve and its flattened segments or <code>0</code> to flatten
+   *          curves in user space with the square root of the segment length
+   *          regardless of the view. With a device flatness zoomed out views
+   *          create fewer segments and zoomed in views stay smooth. Every
+   *          drawable keeps the flattenings of the last few scales. The
+   *          flatness in user space never exceeds the segment length and the
+   *          exact bounding box is enlarged by this deviation.
+   */
+  public void setDeviceFlatness(final double deviceFlatness) {
+    if(deviceFlatness < 0) throw new IllegalArgumentException(
+        "deviceFlatness: " + deviceFlatness);
+    this.deviceFlatness = deviceFlatness;
+    changes.incrementAndGet();
+  }
 
-    /**
-     * Creates a segment.
-     * 
-     * @param pi The path iterator.
-     * @param cmt The current position of the last move-to segment.
-     * @param coords The array suitable to hold the coordinates.
-     * @param lastSeg The previous segment.
-     */
-    public Segment(final PathIterator pi, final Point2D cmt,
-        final double[] coords, final Segment lastSeg) {
-      final int segmentType = pi.currentSegment(coords);
-      isMove = segmentType == PathIterator.SEG_MOVETO;
-      switch(segmentType) {
-        case PathIterator.SEG_MOVETO:
-          cur = create(coords, 0);
-          curMoveTo = cur;
-          break;
-        case PathIterator.SEG_CLOSE:
-          cur = cmt;
-          curMoveTo = null;
-          break;
-        case PathIterator.SEG_LINETO:
-          cur = create(coords, 0);
-          curMoveTo = cmt;
-          break;
-        case PathIterator.SEG_QUADTO:
-          // will not be used since we have a flattened path iterator
-          cur = create(coords, 2);
-          curMoveTo = cmt;
-          break;
-        case PathIterator.SEG_CUBICTO:
-          // will not be used since we have a flattened path iterator
-          cur = create(coords, 4);
-          curMoveTo = cmt;
-          break;
-        default:
-          throw new InternalError();
-      }
-      // set last
-      final boolean valid;
-      final double x, y, dx, dy;
-      last = lastSeg != null ? lastSeg.cur : null;
-      if(last != null) {
-        isFirst = lastSeg.isMove;
-        if(isMove) {
-          lastSeg.isLast = true;
-          dx = dy = x = y = Double.NaN;
-          valid = false;
-        } else {
-          x = last.getX();
-          y = last.getY();
-          dx = cur.getX() - x;
-          dy = cur.getY() - y;
-          valid = true;
-        }
-      } else {
-        isFirst = true;
-        dx = dy = x = y = Double.NaN;
-        valid = false;
-      }
-      isNop = dx == 0.0 && dy == 0.0;
-      // compute len
-      if(valid) {
-        len = Math.sqrt(dx * dx + dy * dy);
-      } else {
-        len = Double.NaN;
-      }
-      // compute rot
-      final double rot;
-      if(valid) {
-        if(dx == 0.0) {
-          rot = Math.PI * (dy > 0.0 ? 0.5 : 1.5);
-        } else {
-          rot = (dx < 0 ? Math.PI : 0) + fastArcTan(dy / dx);
-        }
-      } else {
-        rot = Double.NaN;
-      }
-      this.rot = rot;
-      // compute affine transformation
-      if(valid && !isNop) {
-        at = AffineTransform.getTranslateInstance(x, y);
-        at.rotate(rot);
-      } else {
-        at = null;
-      }
-    }
+  /**
+   * Getter.
+   * 
+   * @return The flatness in device pixels or <code>0</code> if curves are
+   *         flattened in user space.
+   */
+  public double getDeviceFlatness() {
+    return deviceFlatness;
+  }
 
-    /** The length. */
-    private final double len;
+  /**
+   * Setter.
+   * 
+   * @param simplifyTolerance The maximal distance in device pixels between a
+   *          removed vertex and the simplified line or <code>0</code> to
+   *          draw lines with all their vertices. Dense input paths, like
+   *          measured tracks, are simplified before creating the segments so
+   *          that the pen is not applied to details that cannot be seen. Like
+   *          the device flatness the tolerance is rounded to the next power of
+   *          two of the device scale and never exceeds the segment length in
+   *          user space. The exact bounding box is computed without
+   *          simplification and is enlarged by this deviation.
+   */
+  public void setSimplifyTolerance(final double simplifyTolerance) {
+    if(simplifyTolerance < 0) throw new IllegalArgumentException(
+        "simplifyTolerance: " + simplifyTolerance);
+    this.simplifyTolerance = simplifyTolerance;
+    changes.incrementAndGet();
+  }
 
-    /** A quarter pi. */
-    public static final double M_PI_4 = Math.PI / 4.0;
+  /**
+   * Getter.
+   * 
+   * @return The simplification tolerance in device pixels or <code>0</code>
+   *         if lines are not simplified.
+   */
+  public double getSimplifyTolerance() {
+    return simplifyTolerance;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The version of the appearance of the drawables. It changes with
+   *         the version of the pen and with changes of the drawer.
+   */
+  long getDrawableVersion() {
+    return pen.getVersion() + changes.get();
+  }
+
+  /**
+   * {@inheritDoc} The metrics are also set for the pen.
+   */
+  @Override
+  public void setMetrics(final RenderMetrics metrics) {
+    super.setMetrics(metrics);
+    pen.setMetrics(metrics);
+  }
+
+  /**
+   * A {@link Drawable} for a shape drawn with the pen. The segments of the
+   * shape are created when they are needed for the first time. Different
+   * device scales may use different flattenings and simplifications of the
+   * shape. The conservative bounding box does not require the segments.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private final class PenDrawable extends Drawable {
+
+    /** The shape. */
+    private final Shape outline;
+
+    /** Whether pen-steps are placed along whole lines. */
+    private final boolean continuous;
+
+    /** The most recently used flattening or <code>null</code>. */
+    private volatile Flattening last;
+
+    /** The cached flattenings starting with the most recently used. */
+    private final Flattening[] flattenings = new Flattening[FLATTENING_CACHE_SIZE];
 
     /**
-     * A fast implementation of {@link Math#atan(double)}. The maximum error is
-     * <code>0.0015</code> radians. The behavior is the same as the library
-     * function. The algorithm comes from:
-     * <em>"Efficient approximations for the arctangent function",
-     * Rajan, S. Sichun Wang Inkol, R. Joyal, A., May 2006</em>
+     * Creates a drawable.
      * 
-     * @param a The value whose arc tangent is to be returned.
-     * @return The arc tangent of the argument.
-     * @see Math#atan(double)
+     * @param outline The shape.
+     * @param continuous Whether pen-steps are placed along whole lines.
      */
-    private double fastArcTan(final double a) {
-      if(a < -1 || a > 1) return Math.atan(a);
-      return M_PI_4 * a - a * (Math.abs(a) - 1) * (0.2447 + 0.0663 * Math.abs(a));
+    public PenDrawable(final Shape outline, final boolean continuous) {
+      this.outline = outline;
+      this.continuous = continuous;
+    }
+
+    @Override
+    public long getVersion() {
+      return getDrawableVersion();
     }
 
     /**
      * Getter.
      * 
-     * @return The position of the last move-to operation.
+     * @param flatness The flatness.
+     * @param tolerance The simplification tolerance or <code>0</code>.
+     * @return The segments of the shape for the given flatness and tolerance.
+     *         They are created when needed. Only the most recently used
+     *         flattenings are kept.
      */
-    public Point2D getCurMoveTo() {
-      return curMoveTo;
+    private Flattening getFlattening(final double flatness, final double tolerance) {
+      final Flattening cur = last;
+      if(cur != null && cur.matches(flatness, tolerance)) return cur;
+      synchronized(flattenings) {
+        Flattening res = null;
+        int pos = flattenings.length - 1;
+        for(int k = 0; k < flattenings.length; ++k) {
+          final Flattening f = flattenings[k];
+          if(f != null && f.matches(flatness, tolerance)) {
+            res = f;
+            pos = k;
+            break;
+          }
+        }
+        if(res == null) {
+          res = new Flattening(flatness, tolerance,
+              createSegments(outline, flatness, tolerance, continuous));
+          final RenderMetrics m = getMetrics();
+          if(m != null) {
+            m.segmentsCreated(res.segs.size());
+          }
+        }
+        System.arraycopy(flattenings, 0, flattenings, 1, pos);
+        flattenings[0] = res;
+        last = res;
+        return res;
+      }
     }
 
     /**
-     * Getter.
-     * 
-     * @return Whether this segment is a move-to segment.
+     * {@inheritDoc} The bounding box of the shape is enlarged by the maximal
+     * extent of a pen-step.
      */
-    public boolean isMove() {
-      return isMove;
+    @Override
+    protected Rectangle2D computeConservativeBounds() {
+      final double ext = getStepExtent();
+      final Rectangle2D b = outline.getBounds2D();
+      final Rectangle2D res = new Rectangle2D.Double(b.getX() - ext, b.getY() - ext,
+          b.getWidth() + ext * 2.0, b.getHeight() + ext * 2.0);
+      final Shape sb = pen.getConservativeSpecialBounds(outline);
+      if(sb != null) {
+        unite(res, sb);
+      }
+      return res;
     }
 
     /**
      * Getter.
      * 
-     * @param coords The array holding the coordinates.
-     * @param pos The position in the coordinates array.
-     * @return The position specified by the coordinates array.
+     * @param f The flattening.
+     * @return The bounding boxes of the segments of the flattening. They are
+     *         computed when needed.
      */
-    private Point2D create(final double[] coords, final int pos) {
-      return new Point2D.Double(coords[pos], coords[pos + 1]);
+    private SegmentBoxes getBoxes(final Flattening f) {
+      SegmentBoxes res = f.boxes;
+      if(res == null) {
+        final RenderMetrics m = getMetrics();
+        final long start = m != null ? System.nanoTime() : 0L;
+        res = new SegmentBoxes(f.segs, segLen);
+        segmentBounds(f.segs, res);
+        f.boxes = res;
+        if(m != null) {
+          m.boundsComputed(System.nanoTime() - start);
+        }
+      }
+      return res;
     }
 
-    /** The value for the rotation. */
-    private final double rot;
+    @Override
+    public void draw(final Graphics2D gfx) {
+      final RenderMetrics m = getMetrics();
+      final long start = m != null ? System.nanoTime() : 0L;
+      final Graphics2D g = (Graphics2D) gfx.create();
+      pen.prepare(g, outline);
+      if(m != null) {
+        m.prepared(System.nanoTime() - start);
+      }
+      final double bucket = getBucketScale(g.getTransform());
+      final Flattening f = getFlattening(getFlatness(bucket), getTolerance(bucket));
+      final SegmentBuffer segs = f.segs;
+      final Shape clip = g.getClip();
+      final int drawn;
+      final int total;
+      if(isOverview(g)) {
+        drawOutline(g, segs, 0, segs.size());
+        drawn = 0;
+        total = 0;
+      } else if(clip == null) {
+        drawn = drawSegments(g, segs, null, null);
+        total = drawn;
+      } else {
+        final SegmentBoxes sbs = getBoxes(f);
+        drawn = drawSegments(g, segs, sbs, clip.getBounds2D());
+        total = sbs.getStepCount();
+      }
+      g.dispose();
+      if(m != null) {
+        m.stepsDrawn(drawn, total - drawn);
+        m.drawn(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    protected Rectangle2D computeBounds() {
+      final RenderMetrics m = getMetrics();
+      final long start = m != null ? System.nanoTime() : 0L;
+      final Rectangle2D r = new Rectangle2D.Double();
+      final Shape sb = pen.getSpecialBounds(outline);
+      if(sb != null) {
+        unite(r, sb);
+      }
+      // the bounds do not depend on the view
+      final Flattening f = getFlattening(getFlatness(), 0.0);
+      final SegmentBoxes sbs = f.boxes;
+      final double[] b;
+      if(sbs != null) {
+        b = emptyBounds();
+        sbs.addTotal(b);
+      } else {
+        b = segmentBounds(f.segs, null);
+      }
+      if(b[0] <= b[2]) {
+        unite(r, new Rectangle2D.Double(b[0], b[1], b[2] - b[0], b[3] - b[1]));
+      }
+      // drawn flattenings may deviate from the flattening of the bounds
+      final double pad = getBoundsPadding();
+      if(pad > 0.0) {
+        r.setRect(r.getX() - pad, r.getY() - pad,
+            r.getWidth() + pad * 2.0, r.getHeight() + pad * 2.0);
+      }
+      if(m != null) {
+        m.boundsComputed(System.nanoTime() - start);
+      }
+      return r;
+    }
+
+  }
+
+  /**
+   * The segments of a shape flattened with a certain flatness and simplified
+   * with a certain tolerance.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Flattening {
+
+    /** The flatness. */
+    final double flatness;
+
+    /** The simplification tolerance or <code>0</code>. */
+    final double tolerance;
+
+    /** The segments. */
+    final SegmentBuffer segs;
+
+    /** The bounding boxes of the segments or <code>null</code>. */
+    volatile SegmentBoxes boxes;
 
     /**
-     * Draws the current segment.
+     * Creates a flattening.
      * 
-     * @param gfx The graphics context.
-     * @param no The number of the segment.
-     * @return The number of the next segment. May be the same number as
-     *         <code>no</code> when nothing was drawn.
+     * @param flatness The flatness.
+     * @param tolerance The simplification tolerance or <code>0</code>.
+     * @param segs The segments.
      */
-    public int drawCurrentSegment(final Graphics2D gfx, final int no) {
-      if(isNop) return no;
-      final Graphics2D seg = (Graphics2D) gfx.create();
-      seg.transform(at);
-      final int newNo = drawSeg(seg, len, rot, no);
-      seg.dispose();
-      return newNo;
+    public Flattening(final double flatness, final double tolerance,
+        final SegmentBuffer segs) {
+      this.flatness = flatness;
+      this.tolerance = tolerance;
+      this.segs = segs;
     }
 
     /**
-     * Adds the bounding box of this segment to the given rectangle.
+     * Whether this flattening was created with the given values.
      * 
-     * @param r The rectangle.
+     * @param flatness The flatness.
+     * @param tolerance The simplification tolerance.
+     * @return Whether the flattening matches.
      */
-    public void bboxCurrentSegment(final Rectangle2D r) {
-      if(isNop) return;
-      bbox(r, new AffineTransform(at), len, rot);
+    public boolean matches(final double flatness, final double tolerance) {
+      return this.flatness == flatness && this.tolerance == tolerance;
     }
 
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal extent of a pen-step as declared by the pen. Like
+   *         the segment length the extent is obtained only once.
+   */
+  private double getStepExtent() {
+    double res = stepExtent;
+    if(Double.isNaN(res)) {
+      res = pen.getMaxExtent();
+      stepExtent = res;
+    }
+    return res;
+  }
+
+  /**
+   * Creates the segments for the given shape.
+   * 
+   * @param outline The shape.
+   * @param flatness The flatness used to flatten curves.
+   * @param tolerance The simplification tolerance or <code>0</code>.
+   * @param continuous Whether the segments are resampled to the segment
+   *          length along whole lines.
+   * @return The segments. The segments must not be modified.
+   */
+  private SegmentBuffer createSegments(final Shape outline,
+      final double flatness, final double tolerance, final boolean continuous) {
+    SegmentBuffer segs = shareGeometry
+        ? GeometryCache.getDefault().get(outline, flatness)
+        : SegmentBuffer.create(outline, flatness);
+    if(tolerance > 0.0) {
+      segs = SegmentBuffer.simplify(segs, tolerance);
+    }
+    return continuous ? SegmentBuffer.resample(segs, segLen) : segs;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The flatness used to flatten shapes independent of the view.
+   */
+  private double getFlatness() {
+    return Math.sqrt(segLen);
+  }
+
+  /**
+   * Computes the device scale of the given transformation rounded up to the
+   * next power of two so that similar scales share the same flattening.
+   * 
+   * @param at The transformation.
+   * @return The rounded scale or <code>NaN</code> if the scale is invalid.
+   */
+  private static double getBucketScale(final AffineTransform at) {
+    final double scale = getDeviceScale(at);
+    if(!(scale > 0.0) || Double.isInfinite(scale)) return Double.NaN;
+    return Math.scalb(1.0, Math.getExponent(scale) + 1);
+  }
+
+  /**
+   * Computes the flatness used to flatten shapes for a rounded device scale.
+   * 
+   * @param bucket The rounded device scale.
+   * @return The flatness in user space.
+   */
+  private double getFlatness(final double bucket) {
+    final double flat = deviceFlatness;
+    if(flat <= 0.0 || Double.isNaN(bucket)) return getFlatness();
+    return Math.min(flat / bucket, segLen);
+  }
+
+  /**
+   * Computes the simplification tolerance for a rounded device scale.
+   * 
+   * @param bucket The rounded device scale.
+   * @return The tolerance in user space or <code>0</code>.
+   */
+  private double getTolerance(final double bucket) {
+    final double tol = simplifyTolerance;
+    if(tol <= 0.0 || Double.isNaN(bucket)) return 0.0;
+    return Math.min(tol / bucket, segLen);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal distance in user space between the drawn segments and
+   *         the segments used to compute the exact bounding box. Drawn curves
+   *         deviate by at most both flatnesses and simplified lines by at
+   *         most the largest tolerance.
+   */
+  private double getBoundsPadding() {
+    double res = 0.0;
+    if(deviceFlatness > 0.0) {
+      res += getFlatness() + segLen;
+    }
+    if(simplifyTolerance > 0.0) {
+      res += segLen;
+    }
+    return res;
+  }
+
+  /**
+   * Creates a {@link Drawable} for a shape that can grow. The pen is always
+   * prepared with the initial shape so that the appearance of the already
+   * drawn parts stays the same when the shape grows.
+   * 
+   * @param initial The initial shape. May be empty.
+   * @return The drawable.
+   */
+  public AppendableDrawable getAppendableDrawable(final Shape initial) {
+    return new AppendablePenDrawable(initial);
+  }
+
+  /**
+   * A {@link Drawable} for a growing shape drawn with the pen.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private final class AppendablePenDrawable extends AppendableDrawable {
+
+    /** The initial shape. */
+    private final Shape initial;
+
+    /** The complete shape. */
+    private final Path2D path;
+
+    /** The segments. Segments are never shared with other drawables. */
+    private final SegmentBuffer segs;
+
+    /** The bounding boxes of the segments. */
+    private final SegmentBoxes boxes;
+
+    /** The buffer for coordinates. */
+    private final double[] coords = new double[6];
+
+    /** The retained image or <code>null</code>. */
+    private BufferedImage image;
+
+    /** The transformation of the retained image. */
+    private AffineTransform imageTransform;
+
+    /** The device area covered by the retained image. */
+    private Rectangle imageArea;
+
+    /** The number of segments drawn into the retained image. */
+    private int imageCount;
+
+    /** The version of the appearance of the retained image. */
+    private long imageVersion;
+
     /**
-     * Whether this segment has to be drawn because it is in the visible area of
-     * the graphics context.
+     * Creates a drawable.
      * 
-     * @param g The graphics context.
-     * @param type The segment type.
-     * @param rot The rotation of the segment.
-     * @return Whether this segment needs to be drawn.
+     * @param initial The initial shape.
      */
-    private boolean mustDraw(final Graphics2D g, final int type, final double rot) {
-      final Shape clip = g.getClip();
-      return clip == null || clip.intersects(pen.getBoundingBox(type, rot));
+    public AppendablePenDrawable(final Shape initial) {
+      this.initial = initial;
+      path = new Path2D.Double(initial);
+      segs = SegmentBuffer.create(initial, getFlatness());
+      boxes = new SegmentBoxes(segs, segLen);
+      update(0);
     }
 
     /**
-     * Adds the bounding box of the segment to the given rectangle.
+     * Updates the bounding boxes after segments were added.
      * 
-     * @param r The rectangle holding the bounding box.
-     * @param af The transformation.
-     * @param length The length of this segment.
-     * @param rot The rotation of this segment.
+     * @param oldSize The number of segments before adding.
      */
-    private void bbox(final Rectangle2D r,
-        final AffineTransform af, final double length, final double rot) {
-      double pos = 0.0;
-      final double end = Math.max(length - segLen * 0.5, 0.0);
-      while(pos <= end) {
-        final AffineTransform at = new AffineTransform(af);
-        final Shape s;
-        if(isFirst && pos == 0.0) {
-          s = pen.getBoundingBox(Pen.SEG_START, rot);
-        } else if(isLast && pos + segLen > end) {
-          s = pen.getBoundingBox(Pen.SEG_END, rot);
-        } else {
-          s = pen.getBoundingBox(Pen.SEG_NORM, rot);
-        }
-        unite(r, transform(at, s));
-        pos += segLen;
-        af.translate(segLen, 0.0);
+    private void update(final int oldSize) {
+      final RenderMetrics m = getMetrics();
+      if(m != null) {
+        m.segmentsCreated(segs.size() - oldSize);
+      }
+      boxes.extend(segs, segLen);
+      // the previously last segment may have lost its end
+      final int from = Math.max(oldSize - 1, 0);
+      addBounds(emptyBounds(), segs, boxes, from, segs.size());
+      boxes.finish(from);
+    }
+
+    @Override
+    public void moveTo(final double x, final double y) {
+      final int oldSize = segs.size();
+      coords[0] = x;
+      coords[1] = y;
+      segs.add(PathIterator.SEG_MOVETO, coords);
+      path.moveTo(x, y);
+      update(oldSize);
+    }
+
+    @Override
+    public void lineTo(final double x, final double y) {
+      final int oldSize = segs.size();
+      coords[0] = x;
+      coords[1] = y;
+      // a line without a starting point starts the shape like a move
+      if(path.getCurrentPoint() == null) {
+        segs.add(PathIterator.SEG_MOVETO, coords);
+        path.moveTo(x, y);
+      } else {
+        segs.add(PathIterator.SEG_LINETO, coords);
+        path.lineTo(x, y);
       }
+      update(oldSize);
+    }
+
+    @Override
+    public void append(final Shape s) {
+      final int oldSize = segs.size();
+      segs.append(s.getPathIterator(null, getFlatness()));
+      path.append(s, false);
+      update(oldSize);
     }
 
     /**
-     * Transforms a shape and then computes the bounding box. Note that this
-     * method is faster than actually transforming the shape.
-     * 
-     * @param at The transformation.
-     * @param s The shape.
-     * @return The bounding box of the transformed shape.
+     * {@inheritDoc} The version also changes when the shape grows.
      */
-    private Rectangle2D transform(final AffineTransform at, final Shape s) {
-      final Rectangle2D r = s.getBounds2D();
-      final Point2D a = new Point2D.Double(r.getMinX(), r.getMinY());
-      final Point2D b = new Point2D.Double(r.getMaxX(), r.getMaxY());
-      final Point2D c = new Point2D.Double(r.getMinX(), r.getMaxY());
-      final Point2D d = new Point2D.Double(r.getMaxX(), r.getMinY());
-      at.transform(a, a);
-      at.transform(b, b);
-      at.transform(c, c);
-      at.transform(d, d);
-      final double minX = Math.min(a.getX(),
-          Math.min(b.getX(), Math.min(c.getX(), d.getX())));
-      final double maxX = Math.max(a.getX(),
-          Math.max(b.getX(), Math.max(c.getX(), d.getX())));
-      final double minY = Math.min(a.getY(),
-          Math.min(b.getY(), Math.min(c.getY(), d.getY())));
-      final double maxY = Math.max(a.getY(),
-          Math.max(b.getY(), Math.max(c.getY(), d.getY())));
-      return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    @Override
+    public long getVersion() {
+      return getDrawableVersion() + segs.size();
     }
 
     /**
-     * Draws the segment.
+     * Getter.
      * 
-     * @param seg The graphics context.
-     * @param length The length of the segment.
-     * @param rot The rotation of the segment.
-     * @param oldNo The segment number before calling this method.
-     * @return The segment number after calling this method.
+     * @param i The index of a segment or the number of segments.
+     * @return The number of the first pen-step of the segment.
      */
-    private int drawSeg(final Graphics2D seg,
-        final double length, final double rot, final int oldNo) {
-      int no = oldNo;
-      double pos = 0.0;
-      final double end = Math.max(length - segLen * 0.5, 0.0);
-      while(pos <= end) {
-        final Graphics2D s = (Graphics2D) seg.create();
-        if(isFirst && pos == 0.0) {
-          if(mustDraw(s, Pen.SEG_START, rot)) {
-            pen.start(s, no, rot);
-          }
-        } else if(isLast && pos + segLen > end) {
-          if(mustDraw(s, Pen.SEG_END, rot)) {
-            pen.end(s, no, rot);
-          }
-        } else {
-          if(mustDraw(s, Pen.SEG_NORM, rot)) {
-            pen.draw(s, no, rot);
-          }
-        }
-        pos += segLen;
-        ++no;
-        s.dispose();
-        seg.translate(segLen, 0.0);
-      }
-      return no;
+    private int getFirstNo(final int i) {
+      return i < segs.size() ? boxes.getFirstNo(i) : boxes.getStepCount();
     }
 
     /**
-     * Setter.
+     * Draws a range of segments.
      * 
-     * @param isLast Whether this segment is the last of a line.
+     * @param gfx The graphics context.
+     * @param from The first segment inclusive.
+     * @param to The last segment exclusive.
      */
-    public void setIsLast(final boolean isLast) {
-      this.isLast = isLast;
+    private void draw(final Graphics2D gfx, final int from, final int to) {
+      final RenderMetrics m = getMetrics();
+      final long start = m != null ? System.nanoTime() : 0L;
+      final Graphics2D g = (Graphics2D) gfx.create();
+      pen.prepare(g, initial);
+      if(m != null) {
+        m.prepared(System.nanoTime() - start);
+      }
+      if(isOverview(g)) {
+        drawOutline(g, segs, from, to);
+        g.dispose();
+        if(m != null) {
+          m.drawn(System.nanoTime() - start);
+        }
+        return;
+      }
+      final Shape clip = g.getClip();
+      final int drawn = drawSegments(g, segs, boxes,
+          clip != null ? clip.getBounds2D() : null, from, to);
+      g.dispose();
+      if(m != null) {
+        m.stepsDrawn(drawn, getFirstNo(to) - getFirstNo(from) - drawn);
+        m.drawn(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public void draw(final Graphics2D gfx) {
+      draw(gfx, 0, segs.size());
+    }
+
+    @Override
+    public void drawRetained(final Graphics2D gfx) {
+      final Shape clip = gfx.getClip();
+      if(clip == null) {
+        draw(gfx);
+        return;
+      }
+      final AffineTransform at = gfx.getTransform();
+      final Rectangle area = at.createTransformedShape(clip).getBounds();
+      if(area.isEmpty()) return;
+      final long version = getDrawableVersion();
+      if(image == null || !at.equals(imageTransform) || !area.equals(imageArea)
+          || version != imageVersion) {
+        image = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+        imageTransform = at;
+        imageArea = area;
+        imageCount = 0;
+        imageVersion = version;
+      }
+      // only the last segment may still change
+      final int stable = Math.max(segs.size() - 1, 0);
+      if(imageCount < stable) {
+        final Graphics2D g = image.createGraphics();
+        g.setRenderingHints(gfx.getRenderingHints());
+        g.setPaint(gfx.getPaint());
+        g.setStroke(gfx.getStroke());
+        g.clipRect(0, 0, area.width, area.height);
+        g.translate(-area.x, -area.y);
+        g.transform(at);
+        draw(g, imageCount, stable);
+        g.dispose();
+        imageCount = stable;
+      }
+      final Graphics2D g = (Graphics2D) gfx.create();
+      g.setTransform(new AffineTransform());
+      g.drawImage(image, area.x, area.y, null);
+      g.dispose();
+      draw(gfx, stable, segs.size());
+    }
+
+    @Override
+    public void clearRetained() {
+      image = null;
+      imageTransform = null;
+      imageArea = null;
+      imageCount = 0;
+    }
+
+    @Override
+    protected Rectangle2D computeBounds() {
+      final RenderMetrics m = getMetrics();
+      final long start = m != null ? System.nanoTime() : 0L;
+      final Rectangle2D r = new Rectangle2D.Double();
+      final Shape sb = pen.getSpecialBounds(path);
+      if(sb != null) {
+        unite(r, sb);
+      }
+      final double[] b = emptyBounds();
+      boxes.addTotal(b);
+      if(b[0] <= b[2]) {
+        unite(r, new Rectangle2D.Double(b[0], b[1], b[2] - b[0], b[3] - b[1]));
+      }
+      if(m != null) {
+        m.boundsComputed(System.nanoTime() - start);
+      }
+      return r;
     }
 
   }
 
-  @Override
-  public Drawable getDrawable(final Shape outline) {
-    final List<Segment> list = new ArrayList<>();
-    createSegments(outline, list);
-    return new Drawable() {
-
-      @Override
-      public void draw(final Graphics2D gfx) {
-        int no = 0;
-        final Graphics2D g = (Graphics2D) gfx.create();
-        pen.prepare(g, outline);
-        for(final Segment s : list) {
-          no = drawIfNotNull(g, s, no);
+  /**
+   * Whether a pen-step is smaller than the level-of-detail threshold on the
+   * given graphics context.
+   * 
+   * @param g The graphics context.
+   * @return Whether to draw a plain outline instead of using the pen.
+   */
+  private boolean isOverview(final Graphics2D g) {
+    final double threshold = lodThreshold;
+    if(threshold <= 0.0) return false;
+    // a pen drawing far from the line must not collapse to a hairline
+    final double size = Math.max(segLen, getStepExtent() * 2.0);
+    return size * getDeviceScale(g.getTransform()) < threshold;
+  }
+
+  /**
+   * Computes the average scaling of a transformation.
+   * 
+   * @param at The transformation.
+   * @return The factor by which lengths are scaled on average.
+   */
+  private static double getDeviceScale(final AffineTransform at) {
+    return Math.sqrt(Math.abs(at.getDeterminant()));
+  }
+
+  /**
+   * Draws a range of segments as a plain stroked outline. The stroke is
+   * widened to one device pixel if it is thinner so that the outline stays
+   * visible.
+   * 
+   * @param g The graphics context prepared by the pen.
+   * @param segs The segments.
+   * @param from The first segment inclusive.
+   * @param to The last segment exclusive.
+   */
+  private static void drawOutline(final Graphics2D g, final SegmentBuffer segs,
+      final int from, final int to) {
+    final Path2D path = new Path2D.Double();
+    boolean connected = false;
+    for(int i = from; i < to; ++i) {
+      if(!segs.isDrawn(i)) {
+        connected = false;
+        continue;
+      }
+      final double x = segs.x(i);
+      final double y = segs.y(i);
+      if(!connected || segs.isFirst(i)) {
+        path.moveTo(x, y);
+      }
+      // follow the rotation the pen uses for its steps
+      final double rot = segs.rot(i);
+      final double len = segs.len(i);
+      path.lineTo(x + len * Math.cos(rot), y + len * Math.sin(rot));
+      connected = true;
+    }
+    final Stroke stroke = g.getStroke();
+    if(stroke instanceof BasicStroke) {
+      final BasicStroke bs = (BasicStroke) stroke;
+      final double scale = getDeviceScale(g.getTransform());
+      if(scale > 0.0 && bs.getLineWidth() * scale < 1.0) {
+        g.setStroke(new BasicStroke((float) (1.0 / scale), bs.getEndCap(),
+            bs.getLineJoin(), bs.getMiterLimit()));
+      }
+    }
+    g.draw(path);
+  }
+
+  /**
+   * Draws the segments. When the pen preserves the graphics state all segments
+   * are drawn onto the given graphics context without creating copies of it.
+   * The transformation is restored afterwards.
+   * 
+   * @param g The graphics context.
+   * @param segs The segments.
+   * @param boxes The bounding boxes of the segments. May be <code>null</code>
+   *          if there is no view.
+   * @param view The visible area or <code>null</code> if everything is
+   *          visible.
+   * @return The number of drawn pen-steps.
+   */
+  private int drawSegments(final Graphics2D g, final SegmentBuffer segs,
+      final SegmentBoxes boxes, final Rectangle2D view) {
+    return drawSegments(g, segs, boxes, view, 0, segs.size());
+  }
+
+  /**
+   * Draws a range of segments. When the pen preserves the graphics state all
+   * segments are drawn onto the given graphics context without creating
+   * copies of it. The transformation is restored afterwards.
+   * 
+   * @param g The graphics context.
+   * @param segs The segments.
+   * @param boxes The bounding boxes of the segments. May be <code>null</code>
+   *          if all segments are drawn and there is no view.
+   * @param view The visible area or <code>null</code> if everything is
+   *          visible.
+   * @param from The first segment inclusive.
+   * @param to The last segment exclusive.
+   * @return The number of drawn pen-steps.
+   */
+  private int drawSegments(final Graphics2D g, final SegmentBuffer segs,
+      final SegmentBoxes boxes, final Rectangle2D view, final int from, final int to) {
+    final AffineTransform base;
+    final AffineTransform[] ats;
+    if(pen.preservesGraphicsState()) {
+      base = g.getTransform();
+      ats = new AffineTransform[] { new AffineTransform(), new AffineTransform() };
+    } else {
+      base = null;
+      ats = null;
+    }
+    int drawn = 0;
+    if(boxes == null) {
+      int no = 0;
+      final int size = segs.size();
+      for(int i = 0; i < size; ++i) {
+        if(!segs.isDrawn(i)) {
+          continue;
         }
-        g.dispose();
+        final int steps = SegmentBuffer.steps(segs.len(i), segLen);
+        drawn += drawSteps(g, segs, i, no, steps, view, base, ats);
+        no += steps;
       }
+    } else {
+      final int count = boxes.getBlockCount();
+      for(int b = from / SegmentBoxes.BLOCK_SIZE; b < count; ++b) {
+        final int start = Math.max(boxes.getBlockStart(b), from);
+        if(start >= to) {
+          break;
+        }
+        if(view != null && !boxes.blockIntersects(b, view)) {
+          continue;
+        }
+        final int end = Math.min(boxes.getBlockEnd(b), to);
+        for(int i = start; i < end; ++i) {
+          if(!segs.isDrawn(i) || (view != null && !boxes.intersects(i, view))) {
+            continue;
+          }
+          drawn += drawSteps(g, segs, i, boxes.getFirstNo(i),
+              SegmentBuffer.steps(segs.len(i), segLen), view, base, ats);
+        }
+      }
+    }
+    if(base != null) {
+      g.setTransform(base);
+    }
+    return drawn;
+  }
 
-      @Override
-      protected Rectangle2D computeBounds() {
-        final Rectangle2D r = new Rectangle2D.Double();
-        final Shape sb = pen.getSpecialBounds(outline);
-        if(sb != null) {
-          unite(r, sb);
+  /**
+   * Draws the pen-steps of a segment.
+   * 
+   * @param g The graphics context.
+   * @param segs The segments.
+   * @param i The index of the segment.
+   * @param firstNo The number of the first step of the segment.
+   * @param steps The number of steps of the segment.
+   * @param view The visible area or <code>null</code> if everything is
+   *          visible.
+   * @param base The original transformation when drawing directly onto the
+   *          graphics context or <code>null</code> if copies of the graphics
+   *          context need to be created.
+   * @param ats Two transformations that can be altered when drawing directly.
+   * @return The number of drawn steps.
+   */
+  private int drawSteps(final Graphics2D g, final SegmentBuffer segs,
+      final int i, final int firstNo, final int steps, final Rectangle2D view,
+      final AffineTransform base, final AffineTransform[] ats) {
+    final boolean isFirst = segs.isFirst(i);
+    final boolean isLast = segs.isLast(i);
+    final double x = segs.x(i);
+    final double y = segs.y(i);
+    final double rot = segs.rot(i);
+    final double cos = Math.cos(rot);
+    final double sin = Math.sin(rot);
+    final Graphics2D seg;
+    if(base != null) {
+      seg = null;
+      ats[0].setTransform(base);
+      ats[0].translate(x, y);
+      ats[0].rotate(rot);
+    } else {
+      seg = (Graphics2D) g.create();
+      seg.translate(x, y);
+      seg.rotate(rot);
+    }
+    Rectangle2D normBox = null;
+    int no = firstNo;
+    int drawn = 0;
+    for(int k = 0; k < steps; ++k) {
+      final double pos = k * segLen;
+      final int type;
+      if(isFirst && k == 0) {
+        type = Pen.SEG_START;
+      } else if(isLast && k == steps - 1) {
+        type = Pen.SEG_END;
+      } else {
+        type = Pen.SEG_NORM;
+      }
+      final boolean visible;
+      if(view == null) {
+        visible = true;
+      } else {
+        final Rectangle2D box;
+        if(type == Pen.SEG_NORM) {
+          if(normBox == null) {
+            normBox = pen.getBoundingBox(Pen.SEG_NORM, rot);
+          }
+          box = normBox;
+        } else {
+          box = pen.getBoundingBox(type, rot);
         }
-        for(final Segment s : list) {
-          bboxIfNotNull(r, s);
+        visible = intersects(view, box, x + pos * cos, y + pos * sin, cos, sin);
+      }
+      if(visible) {
+        final Graphics2D s;
+        if(seg == null) {
+          ats[1].setTransform(ats[0]);
+          ats[1].translate(pos, 0.0);
+          g.setTransform(ats[1]);
+          s = g;
+        } else {
+          s = (Graphics2D) seg.create();
+          s.translate(pos, 0.0);
+        }
+        if(type == Pen.SEG_START) {
+          pen.start(s, no, rot);
+        } else if(type == Pen.SEG_END) {
+          pen.end(s, no, rot);
+        } else {
+          pen.draw(s, no, rot);
+        }
+        if(s != g) {
+          s.dispose();
         }
-        return r;
+        ++drawn;
       }
+      ++no;
+    }
+    if(seg != null) {
+      seg.dispose();
+    }
+    return drawn;
+  }
+
+  /**
+   * Computes the bounding box of all segments. Large numbers of segments are
+   * processed in parallel.
+   * 
+   * @param segs The segments.
+   * @param boxes Receives the bounding boxes of the individual segments. May
+   *          be <code>null</code>. The boxes are finished afterwards.
+   * @return The bounding box as <code>{ minX, minY, maxX, maxY }</code>. The
+   *         minimum is greater than the maximum if there are no visible
+   *         segments.
+   */
+  private double[] segmentBounds(final SegmentBuffer segs, final SegmentBoxes boxes) {
+    final int size = segs.size();
+    final double[] res;
+    if(size >= parallelBoundsThreshold) {
+      res = getPool().invoke(new BoundsTask(segs, boxes, 0, size));
+    } else {
+      res = emptyBounds();
+      addBounds(res, segs, boxes, 0, size);
+    }
+    if(boxes != null) {
+      boxes.finish();
+    }
+    return res;
+  }
 
+  /**
+   * Getter.
+   * 
+   * @return An empty bounding box.
+   */
+  private static double[] emptyBounds() {
+    return new double[] {
+        Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
     };
   }
 
   /**
-   * Creates segments from the given shape and puts them into the list.
+   * Adds the bounding boxes of the given range of segments.
+   * 
+   * @param res The bounding box as <code>{ minX, minY, maxX, maxY }</code>.
+   * @param segs The segments.
+   * @param boxes Receives the bounding boxes of the individual segments. May
+   *          be <code>null</code>.
+   * @param from The first segment inclusive.
+   * @param to The last segment exclusive.
+   */
+  private void addBounds(final double[] res, final SegmentBuffer segs,
+      final SegmentBoxes boxes, final int from, final int to) {
+    final double[] box = boxes != null ? new double[4] : res;
+    for(int i = from; i < to; ++i) {
+      if(!segs.isDrawn(i)) {
+        continue;
+      }
+      if(boxes != null) {
+        box[0] = Double.POSITIVE_INFINITY;
+        box[1] = Double.POSITIVE_INFINITY;
+        box[2] = Double.NEGATIVE_INFINITY;
+        box[3] = Double.NEGATIVE_INFINITY;
+      }
+      addBounds(box, segs, i);
+      if(boxes != null) {
+        boxes.set(i, box);
+        addBounds(res, box);
+      }
+    }
+  }
+
+  /**
+   * Adds the bounding box of a segment. The steps of a segment only differ by
+   * their translation along the direction of the segment. Therefore, it
+   * suffices to add the first and the last step of each type.
    * 
-   * @param outline The outline.
-   * @param list The list.
+   * @param res The bounding box as <code>{ minX, minY, maxX, maxY }</code>.
+   * @param segs The segments.
+   * @param i The segment.
    */
-  private void createSegments(final Shape outline, final List<Segment> list) {
-    final PathIterator pi = outline.getPathIterator(null, Math.sqrt(segLen));
-    final double[] coords = new double[6];
-    Point2D curMoveTo = null;
-    Segment last = null;
-    Segment cur = null;
-    while(!pi.isDone()) {
-      cur = new Segment(pi, curMoveTo, coords, last);
-      list.add(last);
-      curMoveTo = cur.getCurMoveTo();
-      last = cur;
-      pi.next();
+  private void addBounds(final double[] res, final SegmentBuffer segs, final int i) {
+    final boolean isFirst = segs.isFirst(i);
+    final boolean isLast = segs.isLast(i);
+    final double x = segs.x(i);
+    final double y = segs.y(i);
+    final double rot = segs.rot(i);
+    final double cos = Math.cos(rot);
+    final double sin = Math.sin(rot);
+    final int steps = SegmentBuffer.steps(segs.len(i), segLen);
+    int firstNorm = 0;
+    int lastNorm = steps - 1;
+    if(isFirst) {
+      addBounds(res, pen.getBoundingBox(Pen.SEG_START, rot), x, y, cos, sin);
+      firstNorm = 1;
     }
-    if(cur != null) {
-      cur.setIsLast(true);
+    if(isLast && lastNorm >= firstNorm) {
+      final double pos = lastNorm * segLen;
+      addBounds(res, pen.getBoundingBox(Pen.SEG_END, rot),
+          x + pos * cos, y + pos * sin, cos, sin);
+      --lastNorm;
     }
-    list.add(cur);
+    if(firstNorm <= lastNorm) {
+      final Rectangle2D box = pen.getBoundingBox(Pen.SEG_NORM, rot);
+      final double a = firstNorm * segLen;
+      addBounds(res, box, x + a * cos, y + a * sin, cos, sin);
+      final double b = lastNorm * segLen;
+      addBounds(res, box, x + b * cos, y + b * sin, cos, sin);
+    }
+  }
+
+  /**
+   * Adds a rotated and translated rectangle to the given bounding box without
+   * creating intermediate objects.
+   * 
+   * @param res The bounding box as <code>{ minX, minY, maxX, maxY }</code>.
+   * @param box The rectangle in local coordinates.
+   * @param ox The x coordinate of the local origin.
+   * @param oy The y coordinate of the local origin.
+   * @param cos The cosine of the rotation.
+   * @param sin The sine of the rotation.
+   */
+  private static void addBounds(final double[] res, final Rectangle2D box,
+      final double ox, final double oy, final double cos, final double sin) {
+    final double hw = box.getWidth() * 0.5;
+    final double hh = box.getHeight() * 0.5;
+    final double cx = box.getX() + hw;
+    final double cy = box.getY() + hh;
+    final double ac = Math.abs(cos);
+    final double as = Math.abs(sin);
+    final double ex = ac * hw + as * hh;
+    final double ey = as * hw + ac * hh;
+    final double mx = ox + cx * cos - cy * sin;
+    final double my = oy + cx * sin + cy * cos;
+    res[0] = Math.min(res[0], mx - ex);
+    res[1] = Math.min(res[1], my - ey);
+    res[2] = Math.max(res[2], mx + ex);
+    res[3] = Math.max(res[3], my + ey);
   }
 
   /**
-   * Draws the segment if it is not <code>null</code>.
+   * Combines two bounding boxes.
    * 
-   * @param gfx The graphics context.
-   * @param seg The segment.
-   * @param no The number of the segment.
-   * @return The segment number after a call to this method.
+   * @param res The bounding box that gets enlarged.
+   * @param other The other bounding box.
    */
-  protected static int drawIfNotNull(final Graphics gfx, final Segment seg, final int no) {
-    if(!(seg != null && !seg.isMove())) return no;
-    return seg.drawCurrentSegment((Graphics2D) gfx, no);
+  private static void addBounds(final double[] res, final double[] other) {
+    res[0] = Math.min(res[0], other[0]);
+    res[1] = Math.min(res[1], other[1]);
+    res[2] = Math.max(res[2], other[2]);
+    res[3] = Math.max(res[3], other[3]);
+  }
+
+  /**
+   * Computes the bounding box of a range of segments by splitting the range
+   * into chunks.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private final class BoundsTask extends RecursiveTask<double[]> {
+
+    /** The serial version UID. */
+    private static final long serialVersionUID = 6519376416282393542L;
+
+    /** The segments. */
+    private final SegmentBuffer segs;
+
+    /** The bounding boxes of the segments or <code>null</code>. */
+    private final SegmentBoxes boxes;
+
+    /** The first segment inclusive. */
+    private final int from;
+
+    /** The last segment exclusive. */
+    private final int to;
+
+    /**
+     * Creates a task.
+     * 
+     * @param segs The segments.
+     * @param boxes Receives the bounding boxes of the individual segments. May
+     *          be <code>null</code>.
+     * @param from The first segment inclusive.
+     * @param to The last segment exclusive.
+     */
+    public BoundsTask(final SegmentBuffer segs, final SegmentBoxes boxes,
+        final int from, final int to) {
+      this.segs = segs;
+      this.boxes = boxes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected double[] compute() {
+      if(to - from <= BOUNDS_CHUNK_SIZE) {
+        final double[] res = emptyBounds();
+        addBounds(res, segs, boxes, from, to);
+        return res;
+      }
+      final int mid = (from + to) >>> 1;
+      final BoundsTask left = new BoundsTask(segs, boxes, from, mid);
+      left.fork();
+      final double[] res = new BoundsTask(segs, boxes, mid, to).compute();
+      addBounds(res, left.join());
+      return res;
+    }
+
+  }
+
+  /** The pool for computing bounding boxes. */
+  private static ForkJoinPool pool;
+
+  /**
+   * Getter.
+   * 
+   * @return The pool for computing bounding boxes.
+   */
+  private static synchronized ForkJoinPool getPool() {
+    if(pool == null) {
+      pool = new ForkJoinPool();
+    }
+    return pool;
   }
 
   /**
-   * Adds the bounding box of the segment to the given rectangle if the segment
-   * is not <code>null</code>.
+   * Whether a rotated and translated rectangle intersects the view. The
+   * rotated rectangle is approximated by its axis aligned bounding box.
    * 
-   * @param r The rectangle.
-   * @param seg The segment.
+   * @param view The view.
+   * @param box The rectangle in local coordinates.
+   * @param ox The x coordinate of the local origin.
+   * @param oy The y coordinate of the local origin.
+   * @param cos The cosine of the rotation.
+   * @param sin The sine of the rotation.
+   * @return Whether the bounding box of the transformed rectangle intersects
+   *         the view.
    */
-  protected static void bboxIfNotNull(final Rectangle2D r, final Segment seg) {
-    if(seg == null || seg.isMove()) return;
-    seg.bboxCurrentSegment(r);
+  private static boolean intersects(final Rectangle2D view, final Rectangle2D box,
+      final double ox, final double oy, final double cos, final double sin) {
+    final double hw = box.getWidth() * 0.5;
+    final double hh = box.getHeight() * 0.5;
+    final double cx = box.getX() + hw;
+    final double cy = box.getY() + hh;
+    final double ac = Math.abs(cos);
+    final double as = Math.abs(sin);
+    final double ex = ac * hw + as * hh;
+    final double ey = as * hw + ac * hh;
+    final double mx = ox + cx * cos - cy * sin;
+    final double my = oy + cx * sin + cy * cos;
+    return view.intersects(mx - ex, my - ey, ex * 2.0, ey * 2.0);
   }
 
   /**
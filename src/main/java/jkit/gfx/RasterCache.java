@@ -0,0 +1,148 @@
+package jkit.gfx;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Limits the memory used by the images of {@link CachedDrawable}s. When the
+ * images exceed the memory budget the images of the least recently drawn
+ * {@link CachedDrawable}s are discarded.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public final class RasterCache {
+
+  /** The default memory budget in bytes. */
+  public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L;
+
+  /** The default cache. */
+  private static final RasterCache DEFAULT = new RasterCache(DEFAULT_BUDGET);
+
+  /**
+   * Getter.
+   * 
+   * @return The cache shared by all {@link CachedDrawable}s that do not
+   *         specify a cache.
+   */
+  public static RasterCache getDefault() {
+    return DEFAULT;
+  }
+
+  /** The sizes of the cached images in bytes in access order. */
+  private final LinkedHashMap<CachedDrawable, Long> entries = new LinkedHashMap<>(
+      16, 0.75f, true);
+
+  /** The memory used by all cached images in bytes. */
+  private long usage;
+
+  /** The memory budget in bytes. */
+  private long budget;
+
+  /**
+   * Creates a raster cache.
+   * 
+   * @param budget The memory budget in bytes.
+   */
+  public RasterCache(final long budget) {
+    setBudget(budget);
+  }
+
+  /**
+   * Adds the image of a drawable.
+   * 
+   * @param d The drawable.
+   * @param bytes The size of the image in bytes.
+   * @return Whether the image may be kept. Images larger than the budget
+   *         cannot be kept.
+   */
+  synchronized boolean put(final CachedDrawable d, final long bytes) {
+    remove(d);
+    if(bytes > budget) return false;
+    entries.put(d, bytes);
+    usage += bytes;
+    evict();
+    return true;
+  }
+
+  /**
+   * Marks the image of a drawable as recently used.
+   * 
+   * @param d The drawable.
+   */
+  synchronized void touch(final CachedDrawable d) {
+    entries.get(d);
+  }
+
+  /**
+   * Removes the image of a drawable.
+   * 
+   * @param d The drawable.
+   */
+  synchronized void remove(final CachedDrawable d) {
+    final Long bytes = entries.remove(d);
+    if(bytes != null) {
+      usage -= bytes;
+    }
+  }
+
+  /** Discards the least recently used images until the budget is met. */
+  private void evict() {
+    final Iterator<Entry<CachedDrawable, Long>> it = entries.entrySet().iterator();
+    while(usage > budget && it.hasNext()) {
+      final Entry<CachedDrawable, Long> e = it.next();
+      usage -= e.getValue();
+      it.remove();
+      e.getKey().evicted();
+    }
+  }
+
+  /** Discards all images. */
+  public synchronized void clear() {
+    for(final CachedDrawable d : entries.keySet()) {
+      d.evicted();
+    }
+    entries.clear();
+    usage = 0;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param budget The memory budget in bytes. Images are discarded
+   *          immediately when they exceed the new budget.
+   */
+  public synchronized void setBudget(final long budget) {
+    if(budget < 0) throw new IllegalArgumentException("budget: " + budget);
+    this.budget = budget;
+    evict();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The memory budget in bytes.
+   */
+  public synchronized long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The memory used by all cached images in bytes.
+   */
+  public synchronized long getUsage() {
+    return usage;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cached images.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+}
@@ -0,0 +1,294 @@
+package jkit.gfx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jkit.gfx.pen.CachedRandomPen;
+import jkit.gfx.pen.Pen;
+
+/**
+ * Collects counters and timings of rendering. Metrics can be attached to
+ * {@link AbstractShapeDrawer}s and {@link Pen}s. Without attached metrics no
+ * measurements are taken. The methods receiving measurements may be
+ * overwritten to forward them to other monitoring systems. Measurements may be
+ * reported concurrently.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RenderMetrics {
+
+  /** The number of segments of created drawables. */
+  private final AtomicLong segments = new AtomicLong();
+
+  /** The number of drawn pen-steps. */
+  private final AtomicLong stepsDrawn = new AtomicLong();
+
+  /** The number of pen-steps skipped because they were not visible. */
+  private final AtomicLong stepsCulled = new AtomicLong();
+
+  /** The number of cache hits. */
+  private final AtomicLong cacheHits = new AtomicLong();
+
+  /** The number of cache misses. */
+  private final AtomicLong cacheMisses = new AtomicLong();
+
+  /** The number of cache invalidations. */
+  private final AtomicLong cacheInvalidations = new AtomicLong();
+
+  /** The number of images taken from an image pool. */
+  private final AtomicLong poolHits = new AtomicLong();
+
+  /** The number of images created because the image pool had none. */
+  private final AtomicLong poolMisses = new AtomicLong();
+
+  /** The number of preparations. */
+  private final AtomicLong prepareCount = new AtomicLong();
+
+  /** The time spent preparing in nanoseconds. */
+  private final AtomicLong prepareNanos = new AtomicLong();
+
+  /** The number of bounding box computations. */
+  private final AtomicLong boundsCount = new AtomicLong();
+
+  /** The time spent computing bounding boxes in nanoseconds. */
+  private final AtomicLong boundsNanos = new AtomicLong();
+
+  /** The number of drawings. */
+  private final AtomicLong drawCount = new AtomicLong();
+
+  /** The time spent drawing in nanoseconds. */
+  private final AtomicLong drawNanos = new AtomicLong();
+
+  /**
+   * Is called when a drawable is created.
+   * 
+   * @param count The number of segments of the drawable.
+   */
+  public void segmentsCreated(final int count) {
+    segments.addAndGet(count);
+  }
+
+  /**
+   * Is called after a drawable is drawn.
+   * 
+   * @param drawn The number of drawn pen-steps.
+   * @param culled The number of pen-steps that were skipped because they were
+   *          not visible.
+   */
+  public void stepsDrawn(final int drawn, final int culled) {
+    stepsDrawn.addAndGet(drawn);
+    stepsCulled.addAndGet(culled);
+  }
+
+  /** Is called when a {@link CachedRandomPen} finds a segment in its cache. */
+  public void cacheHit() {
+    cacheHits.incrementAndGet();
+  }
+
+  /** Is called when a {@link CachedRandomPen} has to render a segment. */
+  public void cacheMiss() {
+    cacheMisses.incrementAndGet();
+  }
+
+  /** Is called when the cache of a {@link CachedRandomPen} is invalidated. */
+  public void cacheInvalidated() {
+    cacheInvalidations.incrementAndGet();
+  }
+
+  /** Is called when an image is taken from an {@link ImagePool}. */
+  public void poolHit() {
+    poolHits.incrementAndGet();
+  }
+
+  /** Is called when an {@link ImagePool} has to create an image. */
+  public void poolMiss() {
+    poolMisses.incrementAndGet();
+  }
+
+  /**
+   * Is called after a pen is prepared for a shape.
+   * 
+   * @param nanos The time spent in nanoseconds.
+   */
+  public void prepared(final long nanos) {
+    prepareCount.incrementAndGet();
+    prepareNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Is called after the bounding boxes of a drawable are computed.
+   * 
+   * @param nanos The time spent in nanoseconds.
+   */
+  public void boundsComputed(final long nanos) {
+    boundsCount.incrementAndGet();
+    boundsNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Is called after a drawable is drawn.
+   * 
+   * @param nanos The time spent in nanoseconds including the preparation.
+   */
+  public void drawn(final long nanos) {
+    drawCount.incrementAndGet();
+    drawNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of segments of created drawables.
+   */
+  public long getSegmentsCreated() {
+    return segments.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of drawn pen-steps.
+   */
+  public long getStepsDrawn() {
+    return stepsDrawn.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of pen-steps that were skipped because they were not
+   *         visible.
+   */
+  public long getStepsCulled() {
+    return stepsCulled.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cache hits.
+   */
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cache misses.
+   */
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cache invalidations.
+   */
+  public long getCacheInvalidations() {
+    return cacheInvalidations.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of images taken from an image pool.
+   */
+  public long getPoolHits() {
+    return poolHits.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of images created because the image pool had none.
+   */
+  public long getPoolMisses() {
+    return poolMisses.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of preparations.
+   */
+  public long getPrepareCount() {
+    return prepareCount.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The time spent preparing in nanoseconds.
+   */
+  public long getPrepareNanos() {
+    return prepareNanos.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of bounding box computations.
+   */
+  public long getBoundsCount() {
+    return boundsCount.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The time spent computing bounding boxes in nanoseconds.
+   */
+  public long getBoundsNanos() {
+    return boundsNanos.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of drawings.
+   */
+  public long getDrawCount() {
+    return drawCount.get();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The time spent drawing in nanoseconds.
+   */
+  public long getDrawNanos() {
+    return drawNanos.get();
+  }
+
+  /** Resets all counters and timings. */
+  public void reset() {
+    segments.set(0);
+    stepsDrawn.set(0);
+    stepsCulled.set(0);
+    cacheHits.set(0);
+    cacheMisses.set(0);
+    cacheInvalidations.set(0);
+    poolHits.set(0);
+    poolMisses.set(0);
+    prepareCount.set(0);
+    prepareNanos.set(0);
+    boundsCount.set(0);
+    boundsNanos.set(0);
+    drawCount.set(0);
+    drawNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[segments=" + getSegmentsCreated()
+        + ", stepsDrawn=" + getStepsDrawn() + ", stepsCulled=" + getStepsCulled()
+        + ", cacheHits=" + getCacheHits() + ", cacheMisses=" + getCacheMisses()
+        + ", cacheInvalidations=" + getCacheInvalidations()
+        + ", poolHits=" + getPoolHits() + ", poolMisses=" + getPoolMisses()
+        + ", prepare=" + getPrepareCount() + "/" + getPrepareNanos() + "ns"
+        + ", bounds=" + getBoundsCount() + "/" + getBoundsNanos() + "ns"
+        + ", draw=" + getDrawCount() + "/" + getDrawNanos() + "ns]";
+  }
+
+}
@@ -0,0 +1,183 @@
+package jkit.gfx;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import jkit.gfx.pen.Pen;
+
+/**
+ * The content and size of an image rendered by a {@link RenderService}. The
+ * drawables of shapes are created when the image is rendered. A request must
+ * not be modified after it was submitted.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RenderRequest {
+
+  /**
+   * A shape and its drawer or a drawable.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Entry {
+
+    /** The shape or <code>null</code>. */
+    final Shape shape;
+
+    /** The drawer or <code>null</code>. */
+    final AbstractShapeDrawer drawer;
+
+    /** The drawable or <code>null</code>. */
+    final Drawable drawable;
+
+    /**
+     * Creates an entry.
+     * 
+     * @param shape The shape or <code>null</code>.
+     * @param drawer The drawer or <code>null</code>.
+     * @param drawable The drawable or <code>null</code>.
+     */
+    public Entry(final Shape shape, final AbstractShapeDrawer drawer,
+        final Drawable drawable) {
+      this.shape = shape;
+      this.drawer = drawer;
+      this.drawable = drawable;
+    }
+
+  }
+
+  /** The width of the image. */
+  private final int width;
+
+  /** The height of the image. */
+  private final int height;
+
+  /** The content in drawing order. */
+  private final List<Entry> entries = new ArrayList<>();
+
+  /** The view or <code>null</code> to fit the content. */
+  private Rectangle2D view;
+
+  /** The background color or <code>null</code> for a transparent image. */
+  private Color background;
+
+  /**
+   * Creates a request for an image.
+   * 
+   * @param width The width of the image.
+   * @param height The height of the image.
+   */
+  public RenderRequest(final int width, final int height) {
+    if(width <= 0) throw new IllegalArgumentException("width: " + width);
+    if(height <= 0) throw new IllegalArgumentException("height: " + height);
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Adds a shape drawn with a pen.
+   * 
+   * @param shape The shape.
+   * @param pen The pen.
+   */
+  public void add(final Shape shape, final Pen pen) {
+    add(shape, AbstractShapeDrawer.getShapeDrawerForPen(pen));
+  }
+
+  /**
+   * Adds a shape drawn with a shape drawer.
+   * 
+   * @param shape The shape.
+   * @param drawer The shape drawer.
+   */
+  public void add(final Shape shape, final AbstractShapeDrawer drawer) {
+    if(shape == null) throw new NullPointerException("shape");
+    if(drawer == null) throw new NullPointerException("drawer");
+    entries.add(new Entry(shape, drawer, null));
+  }
+
+  /**
+   * Adds a drawable.
+   * 
+   * @param drawable The drawable.
+   */
+  public void add(final Drawable drawable) {
+    if(drawable == null) throw new NullPointerException("drawable");
+    entries.add(new Entry(null, null, drawable));
+  }
+
+  /**
+   * Creates the drawables of the content.
+   * 
+   * @return The drawables in drawing order.
+   */
+  List<Drawable> createDrawables() {
+    final List<Drawable> res = new ArrayList<>(entries.size());
+    for(final Entry e : entries) {
+      res.add(e.drawable != null ? e.drawable : e.drawer.getDrawable(e.shape));
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The width of the image.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The height of the image.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param view The rectangle in drawable coordinates that is mapped onto the
+   *          image or <code>null</code> to fit the content into the image
+   *          keeping its aspect ratio.
+   */
+  public void setView(final Rectangle2D view) {
+    this.view = view;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The rectangle in drawable coordinates that is mapped onto the
+   *         image or <code>null</code> if the content is fitted.
+   */
+  public Rectangle2D getView() {
+    return view;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param background The background color or <code>null</code> if the image
+   *          should be transparent.
+   */
+  public void setBackground(final Color background) {
+    this.background = background;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The background color or <code>null</code>.
+   */
+  public Color getBackground() {
+    return background;
+  }
+
+}
@@ -0,0 +1,352 @@
+package jkit.gfx;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Renders {@link RenderRequest}s into PNG images, e.g., for thumbnails on a
+ * headless server. Requests are rendered by a fixed number of worker threads.
+ * When the queue of waiting requests is full the submitting thread renders the
+ * request itself, which limits the memory used by waiting requests. Requests
+ * that are submitted while the service shuts down are cancelled. Images are
+ * reused via an {@link ImagePool}. Pens that are used by multiple requests are
+ * drawn concurrently. The bundled pens keep the state of a drawing per thread.
+ * Custom pens must do the same.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RenderService {
+
+  /** The default number of requests that are rendered by one task. */
+  public static final int DEFAULT_BATCH_SIZE = 8;
+
+  /** The worker threads. */
+  private final ThreadPoolExecutor executor;
+
+  /** The pool of images. */
+  private final ImagePool pool;
+
+  /** The rendering hints or <code>null</code>. */
+  private volatile RenderingHints hints;
+
+  /** The number of requests that are rendered by one task. */
+  private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+  /**
+   * Creates a render service with a worker for every available processor.
+   */
+  public RenderService() {
+    this(Runtime.getRuntime().availableProcessors(), 64, 16);
+  }
+
+  /**
+   * Creates a render service.
+   * 
+   * @param threads The number of worker threads.
+   * @param queueSize The number of tasks that can wait for a worker.
+   * @param maxImages The maximal number of pooled images.
+   */
+  public RenderService(final int threads, final int queueSize, final int maxImages) {
+    if(threads <= 0) throw new IllegalArgumentException("threads: " + threads);
+    if(queueSize <= 0) throw new IllegalArgumentException("queueSize: " + queueSize);
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+
+          @Override
+          public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "RenderService");
+            t.setDaemon(true);
+            return t;
+          }
+
+        }, new RejectionPolicy());
+    pool = new ImagePool(maxImages);
+  }
+
+  /**
+   * Runs rejected tasks on the submitting thread while the service is running.
+   * Once the service is shut down rejected batches are cancelled so that
+   * their futures complete and other tasks are refused with an exception.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class RejectionPolicy implements RejectedExecutionHandler {
+
+    @Override
+    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor e) {
+      if(!e.isShutdown()) {
+        r.run();
+        return;
+      }
+      if(r instanceof Batch) {
+        ((Batch) r).cancel();
+        return;
+      }
+      throw new RejectedExecutionException("shut down");
+    }
+
+  }
+
+  /**
+   * Multiple requests that are rendered one after another by one task.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Batch implements Runnable {
+
+    /** The tasks of the requests. */
+    private final List<FutureTask<byte[]>> tasks;
+
+    /**
+     * Creates a batch.
+     * 
+     * @param tasks The tasks of the requests.
+     */
+    public Batch(final List<FutureTask<byte[]>> tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    public void run() {
+      for(final FutureTask<byte[]> t : tasks) {
+        t.run();
+      }
+    }
+
+    /** Cancels all tasks that have not been run yet. */
+    public void cancel() {
+      for(final FutureTask<byte[]> t : tasks) {
+        t.cancel(false);
+      }
+    }
+
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param hints The rendering hints of every image or <code>null</code> to
+   *          use the default hints.
+   */
+  public void setRenderingHints(final RenderingHints hints) {
+    this.hints = hints;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The rendering hints of every image or <code>null</code>.
+   */
+  public RenderingHints getRenderingHints() {
+    return hints;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param batchSize The number of requests that are rendered one after
+   *          another by one task when submitting multiple requests at once.
+   */
+  public void setBatchSize(final int batchSize) {
+    if(batchSize <= 0) throw new IllegalArgumentException("batchSize: " + batchSize);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of requests that are rendered by one task.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The pool of images.
+   */
+  public ImagePool getImagePool() {
+    return pool;
+  }
+
+  /**
+   * Renders a request on a worker thread.
+   * 
+   * @param request The request.
+   * @return The future PNG image.
+   */
+  public Future<byte[]> submit(final RenderRequest request) {
+    ensureRunning();
+    return executor.submit(createTask(request));
+  }
+
+  /**
+   * Renders multiple requests. The requests are split into batches that are
+   * each rendered by one worker thread to reduce scheduling overhead. When the
+   * service is shut down concurrently the remaining requests are cancelled.
+   * 
+   * @param requests The requests.
+   * @return The future PNG images in the order of the requests.
+   */
+  public List<Future<byte[]>> submitAll(final List<RenderRequest> requests) {
+    ensureRunning();
+    final List<Future<byte[]>> res = new ArrayList<>(requests.size());
+    final int size = batchSize;
+    for(int i = 0; i < requests.size(); i += size) {
+      final List<FutureTask<byte[]>> batch = new ArrayList<>(size);
+      for(final RenderRequest r : requests.subList(i, Math.min(i + size, requests.size()))) {
+        batch.add(new FutureTask<>(createTask(r)));
+      }
+      res.addAll(batch);
+      executor.execute(new Batch(batch));
+    }
+    return res;
+  }
+
+  /**
+   * Ensures that requests can be submitted. Requests that are submitted after
+   * shutting down are refused.
+   */
+  private void ensureRunning() {
+    if(executor.isShutdown()) throw new RejectedExecutionException("shut down");
+  }
+
+  /**
+   * Creates a task rendering a request.
+   * 
+   * @param request The request.
+   * @return The task.
+   */
+  private Callable<byte[]> createTask(final RenderRequest request) {
+    if(request == null) throw new NullPointerException("request");
+    return new Callable<byte[]>() {
+
+      @Override
+      public byte[] call() throws Exception {
+        return render(request);
+      }
+
+    };
+  }
+
+  /**
+   * Renders a request on the calling thread.
+   * 
+   * @param request The request.
+   * @return The PNG image.
+   * @throws IOException When the image could not be encoded.
+   */
+  public byte[] render(final RenderRequest request) throws IOException {
+    final int width = request.getWidth();
+    final int height = request.getHeight();
+    final BufferedImage img = pool.acquire(width, height);
+    try {
+      final Graphics2D g = img.createGraphics();
+      final Color bg = request.getBackground();
+      final Composite c = g.getComposite();
+      g.setComposite(AlphaComposite.Src);
+      g.setColor(bg != null ? bg : new Color(0, true));
+      g.fillRect(0, 0, width, height);
+      g.setComposite(c);
+      g.setColor(Color.BLACK);
+      final RenderingHints hints = this.hints;
+      if(hints != null) {
+        g.setRenderingHints(hints);
+      }
+      final List<Drawable> drawables = request.createDrawables();
+      final Rectangle2D view = request.getView() != null ? request.getView()
+          : fit(drawables, width, height);
+      if(view != null && !view.isEmpty()) {
+        g.clipRect(0, 0, width, height);
+        final AffineTransform at = AffineTransform.getScaleInstance(
+            width / view.getWidth(), height / view.getHeight());
+        at.translate(-view.getMinX(), -view.getMinY());
+        g.transform(at);
+        for(final Drawable d : drawables) {
+          d.drawIfVisible(g, view);
+        }
+      }
+      g.dispose();
+      return encode(img);
+    } finally {
+      pool.release(img);
+    }
+  }
+
+  /**
+   * Computes a view showing all drawables with the aspect ratio of the image.
+   * 
+   * @param drawables The drawables.
+   * @param width The width of the image.
+   * @param height The height of the image.
+   * @return The view or <code>null</code> if there is nothing to draw.
+   */
+  private static Rectangle2D fit(final List<Drawable> drawables,
+      final int width, final int height) {
+    Rectangle2D bounds = null;
+    for(final Drawable d : drawables) {
+      final Rectangle2D b = d.getBounds();
+      if(bounds == null) {
+        bounds = (Rectangle2D) b.clone();
+      } else {
+        bounds.add(b);
+      }
+    }
+    if(bounds == null) return null;
+    final double scale = Math.min(width / bounds.getWidth(),
+        height / bounds.getHeight());
+    if(Double.isInfinite(scale) || Double.isNaN(scale)) return null;
+    final double w = width / scale;
+    final double h = height / scale;
+    return new Rectangle2D.Double(bounds.getCenterX() - w * 0.5,
+        bounds.getCenterY() - h * 0.5, w, h);
+  }
+
+  /**
+   * Encodes an image as PNG.
+   * 
+   * @param img The image.
+   * @return The PNG bytes.
+   * @throws IOException When the image could not be encoded.
+   */
+  private static byte[] encode(final BufferedImage img) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // avoid the file cache of image IO
+    try(ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+      if(!ImageIO.write(img, "png", ios)) throw new IOException("no PNG writer");
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Stops the worker threads after all submitted requests are rendered.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+}
@@ -0,0 +1,329 @@
+package jkit.gfx;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A collection of {@link Drawable}s that can efficiently draw only the
+ * {@link Drawable}s intersecting a viewport. The {@link Drawable}s are stored
+ * in a uniform grid over their conservative bounding boxes. {@link Drawable}s
+ * are drawn in the order they were added. Queries may be performed
+ * concurrently as long as the scene is not modified at the same time.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class Scene {
+
+  /**
+   * The maximal number of cells a {@link Drawable} may occupy. Larger
+   * {@link Drawable}s are always tested.
+   */
+  public static final int MAX_CELLS = 64;
+
+  /**
+   * An entry of the scene.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Entry {
+
+    /** The drawable. */
+    final Drawable drawable;
+
+    /** The conservative bounding box of the drawable. */
+    final Rectangle2D bounds;
+
+    /** The drawing order. */
+    final long order;
+
+    /** The first horizontal cell. */
+    final int minCX;
+
+    /** The first vertical cell. */
+    final int minCY;
+
+    /** The last horizontal cell. */
+    final int maxCX;
+
+    /** The last vertical cell. */
+    final int maxCY;
+
+    /**
+     * Creates an entry.
+     * 
+     * @param drawable The drawable.
+     * @param order The drawing order.
+     * @param cellSize The size of the cells.
+     */
+    public Entry(final Drawable drawable, final long order, final double cellSize) {
+      this.drawable = drawable;
+      this.order = order;
+      bounds = drawable.getConservativeBounds();
+      minCX = cell(bounds.getMinX(), cellSize);
+      minCY = cell(bounds.getMinY(), cellSize);
+      maxCX = cell(bounds.getMaxX(), cellSize);
+      maxCY = cell(bounds.getMaxY(), cellSize);
+    }
+
+    /**
+     * Getter.
+     * 
+     * @return Whether the entry occupies too many cells to be stored in the
+     *         grid.
+     */
+    public boolean isLarge() {
+      return exceeds(minCX, minCY, maxCX, maxCY, MAX_CELLS);
+    }
+
+  }
+
+  /** Sorts entries by their drawing order. */
+  private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+
+    @Override
+    public int compare(final Entry a, final Entry b) {
+      return Long.compare(a.order, b.order);
+    }
+
+  };
+
+  /** The size of the cells. */
+  private final double cellSize;
+
+  /** The grid cells. */
+  private final Map<Long, List<Entry>> cells = new HashMap<>();
+
+  /** The entries that are too large for the grid. */
+  private final List<Entry> large = new ArrayList<>();
+
+  /** All entries. */
+  private final Map<Drawable, Entry> entries = new IdentityHashMap<>();
+
+  /** The next drawing order. */
+  private long nextOrder;
+
+  /**
+   * Creates a scene.
+   * 
+   * @param cellSize The size of the grid cells. A good cell size is in the
+   *          order of the typical size of the viewport or of the
+   *          {@link Drawable}s, whichever is smaller.
+   */
+  public Scene(final double cellSize) {
+    if(!(cellSize > 0.0)) throw new IllegalArgumentException("cellSize: " + cellSize);
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Computes the cell of a coordinate.
+   * 
+   * @param v The coordinate.
+   * @param cellSize The size of the cells.
+   * @return The cell.
+   */
+  static int cell(final double v, final double cellSize) {
+    final double c = Math.floor(v / cellSize);
+    if(c < Integer.MIN_VALUE) return Integer.MIN_VALUE;
+    if(c > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+    return (int) c;
+  }
+
+  /**
+   * Whether a cell range contains more than the given number of cells.
+   * 
+   * @param minCX The first horizontal cell.
+   * @param minCY The first vertical cell.
+   * @param maxCX The last horizontal cell.
+   * @param maxCY The last vertical cell.
+   * @param limit The number of cells.
+   * @return Whether the range contains more cells.
+   */
+  static boolean exceeds(final int minCX, final int minCY,
+      final int maxCX, final int maxCY, final int limit) {
+    final long w = (long) maxCX - minCX + 1L;
+    final long h = (long) maxCY - minCY + 1L;
+    if(w > limit || h > limit) return true;
+    return w * h > limit;
+  }
+
+  /**
+   * Computes the key of a cell.
+   * 
+   * @param cx The horizontal cell.
+   * @param cy The vertical cell.
+   * @return The key.
+   */
+  private static Long key(final int cx, final int cy) {
+    return Long.valueOf(((long) cx << 32) | (cy & 0xffffffffL));
+  }
+
+  /**
+   * Adds a {@link Drawable} to the scene. The conservative bounding box of
+   * the {@link Drawable} is computed immediately. When the {@link Drawable} is
+   * already in the scene it is moved to the top.
+   * 
+   * @param d The drawable.
+   */
+  public void add(final Drawable d) {
+    if(d == null) throw new NullPointerException("d");
+    remove(d);
+    final Entry e = new Entry(d, nextOrder++, cellSize);
+    entries.put(d, e);
+    if(e.isLarge()) {
+      large.add(e);
+      return;
+    }
+    for(int cx = e.minCX; cx <= e.maxCX; ++cx) {
+      for(int cy = e.minCY; cy <= e.maxCY; ++cy) {
+        final Long key = key(cx, cy);
+        List<Entry> list = cells.get(key);
+        if(list == null) {
+          list = new ArrayList<>();
+          cells.put(key, list);
+        }
+        list.add(e);
+      }
+    }
+  }
+
+  /**
+   * Removes a {@link Drawable} from the scene.
+   * 
+   * @param d The drawable.
+   * @return Whether the drawable was in the scene.
+   */
+  public boolean remove(final Drawable d) {
+    final Entry e = entries.remove(d);
+    if(e == null) return false;
+    if(e.isLarge()) {
+      large.remove(e);
+      return true;
+    }
+    for(int cx = e.minCX; cx <= e.maxCX; ++cx) {
+      for(int cy = e.minCY; cy <= e.maxCY; ++cy) {
+        final Long key = key(cx, cy);
+        final List<Entry> list = cells.get(key);
+        list.remove(e);
+        if(list.isEmpty()) {
+          cells.remove(key);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param d The drawable.
+   * @return Whether the drawable is in the scene.
+   */
+  public boolean contains(final Drawable d) {
+    return entries.containsKey(d);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of {@link Drawable}s in the scene.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /** Removes all {@link Drawable}s. */
+  public void clear() {
+    cells.clear();
+    large.clear();
+    entries.clear();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param viewport The viewport.
+   * @return All {@link Drawable}s whose conservative bounding box intersect
+   *         the viewport in drawing order.
+   */
+  public List<Drawable> getVisible(final Rectangle2D viewport) {
+    final List<Entry> candidates = new ArrayList<>();
+    final int minCX = cell(viewport.getMinX(), cellSize);
+    final int minCY = cell(viewport.getMinY(), cellSize);
+    final int maxCX = cell(viewport.getMaxX(), cellSize);
+    final int maxCY = cell(viewport.getMaxY(), cellSize);
+    if(exceeds(minCX, minCY, maxCX, maxCY, cells.size())) {
+      // the viewport covers more cells than there are occupied cells
+      for(final List<Entry> list : cells.values()) {
+        addVisible(candidates, list, viewport);
+      }
+    } else {
+      for(long cx = minCX; cx <= maxCX; ++cx) {
+        for(long cy = minCY; cy <= maxCY; ++cy) {
+          final List<Entry> list = cells.get(key((int) cx, (int) cy));
+          if(list != null) {
+            addVisible(candidates, list, viewport);
+          }
+        }
+      }
+    }
+    addVisible(candidates, large, viewport);
+    Collections.sort(candidates, ORDER);
+    final List<Drawable> res = new ArrayList<>(candidates.size());
+    Entry last = null;
+    for(final Entry e : candidates) {
+      // entries occupying multiple cells are found multiple times
+      if(e == last) {
+        continue;
+      }
+      res.add(e.drawable);
+      last = e;
+    }
+    return res;
+  }
+
+  /**
+   * Adds all entries that are visible in the viewport.
+   * 
+   * @param res The list to add the entries to.
+   * @param list The entries to test.
+   * @param viewport The viewport.
+   */
+  private static void addVisible(final List<Entry> res,
+      final List<Entry> list, final Rectangle2D viewport) {
+    for(final Entry e : list) {
+      if(viewport.intersects(e.bounds)) {
+        res.add(e);
+      }
+    }
+  }
+
+  /**
+   * Draws all {@link Drawable}s that are visible in the viewport.
+   * 
+   * @param gfx The graphics context.
+   * @param viewport The current viewport of the graphics context. The viewport
+   *          may be <code>null</code>, however then all {@link Drawable}s are
+   *          drawn.
+   */
+  public void drawVisible(final Graphics2D gfx, final Rectangle2D viewport) {
+    if(viewport == null) {
+      final List<Entry> all = new ArrayList<>(entries.values());
+      Collections.sort(all, ORDER);
+      for(final Entry e : all) {
+        e.drawable.draw(gfx);
+      }
+      return;
+    }
+    for(final Drawable d : getVisible(viewport)) {
+      d.draw(gfx);
+    }
+  }
+
+}
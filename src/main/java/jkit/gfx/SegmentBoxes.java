@@ -0,0 +1,235 @@
+package jkit.gfx;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * The bounding boxes of the segments of a {@link SegmentBuffer} drawn by a pen.
+ * The boxes are grouped into blocks of consecutive segments so that whole runs
+ * of segments outside of the visible area can be skipped. Additionally, the
+ * number of the first pen-step of every segment is stored so that drawing can
+ * start at any segment.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+final class SegmentBoxes {
+
+  /** The number of segments in a block. */
+  public static final int BLOCK_SIZE = 64;
+
+  /** The number of segments. */
+  private int size;
+
+  /** The segment boxes as <code>minX, minY, maxX, maxY</code>. */
+  private double[] boxes;
+
+  /** The block boxes as <code>minX, minY, maxX, maxY</code>. */
+  private double[] blocks;
+
+  /** The number of the first pen-step of every segment. */
+  private int[] firstNo;
+
+  /** The total number of pen-steps. */
+  private int stepCount;
+
+  /**
+   * Creates empty bounding boxes for the given segments. The boxes must be
+   * filled using {@link #set(int, double[])} and finished with
+   * {@link #finish()}.
+   * 
+   * @param segs The segments.
+   * @param segLen The length of a pen-step.
+   */
+  public SegmentBoxes(final SegmentBuffer segs, final double segLen) {
+    size = 0;
+    boxes = new double[0];
+    blocks = new double[0];
+    firstNo = new int[0];
+    stepCount = 0;
+    extend(segs, segLen);
+  }
+
+  /**
+   * Adds empty bounding boxes for segments that were appended to the segments.
+   * The numbers of the pen-steps of previous segments stay the same. The new
+   * boxes must be filled using {@link #set(int, double[])} and finished with
+   * {@link #finish(int)}.
+   * 
+   * @param segs The segments.
+   * @param segLen The length of a pen-step.
+   */
+  public void extend(final SegmentBuffer segs, final double segLen) {
+    final int from = size;
+    final int to = segs.size();
+    if(to <= from) return;
+    if(to > firstNo.length) {
+      final int cap = Math.max(to, firstNo.length * 2);
+      boxes = Arrays.copyOf(boxes, cap * 4);
+      firstNo = Arrays.copyOf(firstNo, cap);
+      blocks = Arrays.copyOf(blocks, (cap + BLOCK_SIZE - 1) / BLOCK_SIZE * 4);
+    }
+    int no = stepCount;
+    for(int i = from; i < to; ++i) {
+      firstNo[i] = no;
+      if(segs.isDrawn(i)) {
+        no += SegmentBuffer.steps(segs.len(i), segLen);
+      }
+      clear(boxes, i);
+    }
+    size = to;
+    stepCount = no;
+  }
+
+  /**
+   * Clears a box.
+   * 
+   * @param arr The array.
+   * @param i The index of the box.
+   */
+  private static void clear(final double[] arr, final int i) {
+    final int p = i * 4;
+    arr[p] = Double.POSITIVE_INFINITY;
+    arr[p + 1] = Double.POSITIVE_INFINITY;
+    arr[p + 2] = Double.NEGATIVE_INFINITY;
+    arr[p + 3] = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param i The index of the segment.
+   * @param box The bounding box as <code>{ minX, minY, maxX, maxY }</code>.
+   */
+  public void set(final int i, final double[] box) {
+    System.arraycopy(box, 0, boxes, i * 4, 4);
+  }
+
+  /** Computes the block boxes after all segment boxes are set. */
+  public void finish() {
+    finish(0);
+  }
+
+  /**
+   * Computes the block boxes after the segment boxes starting from the given
+   * segment have changed.
+   * 
+   * @param from The first changed segment.
+   */
+  public void finish(final int from) {
+    final int count = getBlockCount();
+    for(int b = from / BLOCK_SIZE; b < count; ++b) {
+      clear(blocks, b);
+      final int p = b * 4;
+      final int to = getBlockEnd(b);
+      for(int i = getBlockStart(b); i < to; ++i) {
+        final int q = i * 4;
+        blocks[p] = Math.min(blocks[p], boxes[q]);
+        blocks[p + 1] = Math.min(blocks[p + 1], boxes[q + 1]);
+        blocks[p + 2] = Math.max(blocks[p + 2], boxes[q + 2]);
+        blocks[p + 3] = Math.max(blocks[p + 3], boxes[q + 3]);
+      }
+    }
+  }
+
+  /**
+   * Adds the bounding box of all segments to the given bounding box.
+   * 
+   * @param res The bounding box as <code>{ minX, minY, maxX, maxY }</code>.
+   */
+  public void addTotal(final double[] res) {
+    final int count = getBlockCount();
+    for(int b = 0; b < count; ++b) {
+      final int p = b * 4;
+      res[0] = Math.min(res[0], blocks[p]);
+      res[1] = Math.min(res[1], blocks[p + 1]);
+      res[2] = Math.max(res[2], blocks[p + 2]);
+      res[3] = Math.max(res[3], blocks[p + 3]);
+    }
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of blocks.
+   */
+  public int getBlockCount() {
+    return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param b The block.
+   * @return The first segment of the block.
+   */
+  public int getBlockStart(final int b) {
+    return b * BLOCK_SIZE;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param b The block.
+   * @return The segment after the last segment of the block.
+   */
+  public int getBlockEnd(final int b) {
+    return Math.min((b + 1) * BLOCK_SIZE, size);
+  }
+
+  /**
+   * Whether a block intersects the view.
+   * 
+   * @param b The block.
+   * @param view The view.
+   * @return Whether any segment of the block may be visible.
+   */
+  public boolean blockIntersects(final int b, final Rectangle2D view) {
+    return intersects(blocks, b, view);
+  }
+
+  /**
+   * Whether a segment intersects the view.
+   * 
+   * @param i The segment.
+   * @param view The view.
+   * @return Whether the segment may be visible.
+   */
+  public boolean intersects(final int i, final Rectangle2D view) {
+    return intersects(boxes, i, view);
+  }
+
+  /**
+   * Whether a box intersects the view.
+   * 
+   * @param arr The array.
+   * @param i The index of the box.
+   * @param view The view.
+   * @return Whether the box intersects the view.
+   */
+  private static boolean intersects(final double[] arr, final int i,
+      final Rectangle2D view) {
+    final int p = i * 4;
+    return view.intersects(arr[p], arr[p + 1],
+        arr[p + 2] - arr[p], arr[p + 3] - arr[p + 1]);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The segment.
+   * @return The number of the first pen-step of the segment.
+   */
+  public int getFirstNo(final int i) {
+    return firstNo[i];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The total number of pen-steps of all segments.
+   */
+  public int getStepCount() {
+    return stepCount;
+  }
+
+}
@@ -0,0 +1,617 @@
+package jkit.gfx;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * A compact store for the segments of a flattened path. Instead of one object
+ * per segment the values are held in parallel primitive arrays. A segment
+ * starts at <code>(x, y)</code> and has the given length and rotation. Buffers
+ * may be shared between drawables and threads once they are filled.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+final class SegmentBuffer {
+
+  /** The flag for the first segment of a line. */
+  public static final byte FIRST = 1;
+
+  /** The flag for the last segment of a line. */
+  public static final byte LAST = 2;
+
+  /** The flag for move-to segments. */
+  public static final byte MOVE = 4;
+
+  /** The flag for segments that do not need to be drawn. */
+  public static final byte NOP = 8;
+
+  /** The initial capacity. */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** The squared relative tolerance for collinear segments. */
+  private static final double COLLINEAR_EPS = 1e-18;
+
+  /** The x coordinates of the segment starts. */
+  private double[] xs;
+
+  /** The y coordinates of the segment starts. */
+  private double[] ys;
+
+  /** The lengths of the segments. */
+  private double[] lens;
+
+  /** The rotations of the segments. */
+  private double[] rots;
+
+  /** The flags of the segments. */
+  private byte[] flags;
+
+  /** The number of segments. */
+  private int size;
+
+  /** Whether the previous segment has a position. */
+  private boolean hasCur;
+
+  /** The x coordinate of the previous position. */
+  private double curX;
+
+  /** The y coordinate of the previous position. */
+  private double curY;
+
+  /** Whether there is a current move-to position. */
+  private boolean hasMoveTo;
+
+  /** The x coordinate of the last move-to position. */
+  private double moveToX;
+
+  /** The y coordinate of the last move-to position. */
+  private double moveToY;
+
+  /**
+   * Creates an empty segment buffer.
+   * 
+   * @param capacity The initial capacity.
+   */
+  public SegmentBuffer(final int capacity) {
+    final int cap = Math.max(capacity, 1);
+    xs = new double[cap];
+    ys = new double[cap];
+    lens = new double[cap];
+    rots = new double[cap];
+    flags = new byte[cap];
+    size = 0;
+  }
+
+  /**
+   * Creates the segments of the given shape.
+   * 
+   * @param outline The shape.
+   * @param flatness The flatness used to flatten curves.
+   * @return The segments.
+   */
+  public static SegmentBuffer create(final Shape outline, final double flatness) {
+    final SegmentBuffer buff = new SegmentBuffer(INITIAL_CAPACITY);
+    buff.append(outline.getPathIterator(null, flatness));
+    return buff;
+  }
+
+  /**
+   * Creates segments of equal length along the lines of the given segments.
+   * Every line is walked by its arc length and a new segment starts every
+   * <code>segLen</code> regardless of the vertices of the line. Therefore,
+   * every resulting segment has exactly one pen-step. The rotation of a
+   * segment is the direction of the chord between its ends which interpolates
+   * the rotation at the joints of the line. The remainder at the end of a line
+   * is a shorter segment so that closed lines have no gap.
+   * 
+   * @param segs The segments.
+   * @param segLen The length of a pen-step.
+   * @return The resampled segments.
+   */
+  public static SegmentBuffer resample(final SegmentBuffer segs, final double segLen) {
+    final SegmentBuffer res = new SegmentBuffer(INITIAL_CAPACITY);
+    final double[] coords = new double[6];
+    final double[] end = new double[2];
+    boolean open = false;
+    // the distance from the last sample and the end of the line
+    double dist = 0.0;
+    double endX = 0.0;
+    double endY = 0.0;
+    for(int i = 0; i < segs.size; ++i) {
+      final double x = segs.xs[i];
+      if((segs.flags[i] & MOVE) != 0 || Double.isNaN(x)) {
+        if(open) {
+          res.endLine(coords, endX, endY, dist, segLen);
+          open = false;
+        }
+        continue;
+      }
+      if((segs.flags[i] & NOP) != 0) {
+        continue;
+      }
+      final double y = segs.ys[i];
+      final double len = segs.lens[i];
+      if(!open) {
+        coords[0] = x;
+        coords[1] = y;
+        res.add(PathIterator.SEG_MOVETO, coords);
+        open = true;
+        dist = 0.0;
+      }
+      segs.getEnd(i, end);
+      endX = end[0];
+      endY = end[1];
+      final double ux = (endX - x) / len;
+      final double uy = (endY - y) / len;
+      double pos = segLen - dist;
+      while(pos <= len) {
+        coords[0] = x + pos * ux;
+        coords[1] = y + pos * uy;
+        res.add(PathIterator.SEG_LINETO, coords);
+        pos += segLen;
+      }
+      dist = len - (pos - segLen);
+    }
+    if(open) {
+      res.endLine(coords, endX, endY, dist, segLen);
+    }
+    return res;
+  }
+
+  /**
+   * Computes the end of a drawn segment. The start of the next segment is
+   * used if possible since it avoids the error of the rotation.
+   * 
+   * @param i The index of the segment.
+   * @param res Receives the end as <code>{ x, y }</code>.
+   */
+  private void getEnd(final int i, final double[] res) {
+    final int next = i + 1;
+    if(next < size && !Double.isNaN(xs[next])) {
+      res[0] = xs[next];
+      res[1] = ys[next];
+    } else {
+      res[0] = xs[i] + lens[i] * Math.cos(rots[i]);
+      res[1] = ys[i] + lens[i] * Math.sin(rots[i]);
+    }
+  }
+
+  /**
+   * Creates simplified segments for the lines of the given segments. First,
+   * runs of collinear segments are merged. Then the lines are simplified with
+   * the Douglas-Peucker algorithm. The vertices of the result are a subset of
+   * the original vertices and the start and end of every line are kept.
+   * 
+   * @param segs The segments.
+   * @param tolerance The maximal distance of a removed vertex from the
+   *          simplified line.
+   * @return The simplified segments.
+   */
+  public static SegmentBuffer simplify(final SegmentBuffer segs, final double tolerance) {
+    final SegmentBuffer res = new SegmentBuffer(INITIAL_CAPACITY);
+    final double[] end = new double[2];
+    // the vertices of the current line as x, y pairs
+    double[] line = new double[INITIAL_CAPACITY * 2];
+    int count = 0;
+    for(int i = 0; i < segs.size; ++i) {
+      if((segs.flags[i] & MOVE) != 0 || Double.isNaN(segs.xs[i])) {
+        res.addSimplified(line, count, tolerance);
+        count = 0;
+        continue;
+      }
+      if((segs.flags[i] & NOP) != 0) {
+        continue;
+      }
+      if(line.length < (count + 2) * 2) {
+        line = Arrays.copyOf(line, Math.max((count + 2) * 2, line.length * 2));
+      }
+      if(count == 0) {
+        line[0] = segs.xs[i];
+        line[1] = segs.ys[i];
+        count = 1;
+      }
+      segs.getEnd(i, end);
+      line[count * 2] = end[0];
+      line[count * 2 + 1] = end[1];
+      ++count;
+    }
+    res.addSimplified(line, count, tolerance);
+    return res;
+  }
+
+  /**
+   * Adds a simplified line.
+   * 
+   * @param line The vertices of the line as x, y pairs. The array is
+   *          modified.
+   * @param count The number of vertices.
+   * @param tolerance The maximal distance of a removed vertex from the
+   *          simplified line.
+   */
+  private void addSimplified(final double[] line, final int count,
+      final double tolerance) {
+    if(count < 2) return;
+    final int n = mergeCollinear(line, count);
+    final boolean[] keep = new boolean[n];
+    keep[0] = true;
+    keep[n - 1] = true;
+    // the ranges still to simplify as first, last pairs
+    final int[] stack = new int[Math.max(n * 2, 2)];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = n - 1;
+    while(top > 0) {
+      final int last = stack[--top];
+      final int first = stack[--top];
+      double max = tolerance;
+      int pos = -1;
+      for(int k = first + 1; k < last; ++k) {
+        final double d = distance(line, k, first, last);
+        if(d > max) {
+          max = d;
+          pos = k;
+        }
+      }
+      if(pos < 0) {
+        continue;
+      }
+      keep[pos] = true;
+      stack[top++] = first;
+      stack[top++] = pos;
+      stack[top++] = pos;
+      stack[top++] = last;
+    }
+    final double[] coords = new double[6];
+    coords[0] = line[0];
+    coords[1] = line[1];
+    add(PathIterator.SEG_MOVETO, coords);
+    for(int k = 1; k < n; ++k) {
+      if(!keep[k]) {
+        continue;
+      }
+      coords[0] = line[k * 2];
+      coords[1] = line[k * 2 + 1];
+      add(PathIterator.SEG_LINETO, coords);
+    }
+  }
+
+  /**
+   * Removes vertices between collinear segments pointing in the same
+   * direction.
+   * 
+   * @param line The vertices as x, y pairs. The array is compacted.
+   * @param count The number of vertices.
+   * @return The remaining number of vertices.
+   */
+  private static int mergeCollinear(final double[] line, final int count) {
+    if(count < 3) return count;
+    int n = 1;
+    for(int k = 1; k < count - 1; ++k) {
+      final double ax = line[k * 2] - line[(n - 1) * 2];
+      final double ay = line[k * 2 + 1] - line[(n - 1) * 2 + 1];
+      final double bx = line[(k + 1) * 2] - line[k * 2];
+      final double by = line[(k + 1) * 2 + 1] - line[k * 2 + 1];
+      final double cross = ax * by - ay * bx;
+      final double eps = COLLINEAR_EPS * (ax * ax + ay * ay) * (bx * bx + by * by);
+      if(cross * cross <= eps && ax * bx + ay * by > 0.0) {
+        continue;
+      }
+      line[n * 2] = line[k * 2];
+      line[n * 2 + 1] = line[k * 2 + 1];
+      ++n;
+    }
+    line[n * 2] = line[(count - 1) * 2];
+    line[n * 2 + 1] = line[(count - 1) * 2 + 1];
+    return n + 1;
+  }
+
+  /**
+   * Computes the distance of a vertex from the line segment between two
+   * other vertices.
+   * 
+   * @param line The vertices as x, y pairs.
+   * @param k The vertex.
+   * @param a The start of the line segment.
+   * @param b The end of the line segment.
+   * @return The distance.
+   */
+  private static double distance(final double[] line, final int k,
+      final int a, final int b) {
+    final double ax = line[a * 2];
+    final double ay = line[a * 2 + 1];
+    final double dx = line[b * 2] - ax;
+    final double dy = line[b * 2 + 1] - ay;
+    final double px = line[k * 2] - ax;
+    final double py = line[k * 2 + 1] - ay;
+    final double sq = dx * dx + dy * dy;
+    final double t = sq > 0.0
+        ? Math.min(Math.max((px * dx + py * dy) / sq, 0.0), 1.0) : 0.0;
+    final double ex = px - t * dx;
+    final double ey = py - t * dy;
+    return Math.sqrt(ex * ex + ey * ey);
+  }
+
+  /**
+   * Adds the remainder of a resampled line.
+   * 
+   * @param coords The buffer for coordinates.
+   * @param x The x coordinate of the end of the line.
+   * @param y The y coordinate of the end of the line.
+   * @param dist The distance from the last sample to the end of the line.
+   * @param segLen The length of a pen-step.
+   */
+  private void endLine(final double[] coords, final double x, final double y,
+      final double dist, final double segLen) {
+    // ignore rounding errors of the sample positions
+    if(dist <= segLen * 1e-9) return;
+    coords[0] = x;
+    coords[1] = y;
+    add(PathIterator.SEG_LINETO, coords);
+  }
+
+  /**
+   * Appends all segments of the given flattened path iterator.
+   * 
+   * @param pi The path iterator.
+   */
+  public void append(final PathIterator pi) {
+    final double[] coords = new double[6];
+    while(!pi.isDone()) {
+      add(pi.currentSegment(coords), coords);
+      pi.next();
+    }
+  }
+
+  /**
+   * Adds a segment.
+   * 
+   * @param segmentType The path iterator segment type.
+   * @param coords The coordinates of the segment.
+   */
+  public void add(final int segmentType, final double[] coords) {
+    final boolean isMove = segmentType == PathIterator.SEG_MOVETO;
+    final boolean hasPos;
+    final double px;
+    final double py;
+    switch(segmentType) {
+      case PathIterator.SEG_MOVETO:
+        hasPos = true;
+        px = coords[0];
+        py = coords[1];
+        break;
+      case PathIterator.SEG_CLOSE:
+        hasPos = hasMoveTo;
+        px = moveToX;
+        py = moveToY;
+        break;
+      case PathIterator.SEG_LINETO:
+        hasPos = true;
+        px = coords[0];
+        py = coords[1];
+        break;
+      case PathIterator.SEG_QUADTO:
+        // will not be used since we have a flattened path iterator
+        hasPos = true;
+        px = coords[2];
+        py = coords[3];
+        break;
+      case PathIterator.SEG_CUBICTO:
+        // will not be used since we have a flattened path iterator
+        hasPos = true;
+        px = coords[4];
+        py = coords[5];
+        break;
+      default:
+        throw new InternalError();
+    }
+    ensureCapacity(size + 1);
+    final int i = size;
+    byte f = isMove ? MOVE : 0;
+    double x = Double.NaN;
+    double y = Double.NaN;
+    double len = Double.NaN;
+    double rot = Double.NaN;
+    if(i > 0) {
+      // only segments before a move-to are last segments
+      if(isMove) {
+        flags[i - 1] |= LAST;
+      } else {
+        flags[i - 1] &= ~LAST;
+      }
+    }
+    if(i > 0 && hasCur) {
+      if((flags[i - 1] & MOVE) != 0) {
+        f |= FIRST;
+      }
+      if(!isMove && !hasPos) {
+        // closing a path without a move-to position
+        f |= NOP;
+      } else if(!isMove) {
+        x = curX;
+        y = curY;
+        final double dx = px - x;
+        final double dy = py - y;
+        if(dx == 0.0 && dy == 0.0) {
+          f |= NOP;
+          len = 0.0;
+        } else {
+          len = Math.sqrt(dx * dx + dy * dy);
+          rot = rotation(dx, dy);
+        }
+      }
+    } else {
+      f |= FIRST;
+      if(!isMove) {
+        // there is no valid starting point
+        f |= NOP;
+      }
+    }
+    // the last segment of a path is always a last segment
+    f |= LAST;
+    xs[i] = x;
+    ys[i] = y;
+    lens[i] = len;
+    rots[i] = rot;
+    flags[i] = f;
+    ++size;
+    // update the state
+    hasCur = hasPos;
+    curX = px;
+    curY = py;
+    switch(segmentType) {
+      case PathIterator.SEG_MOVETO:
+        hasMoveTo = true;
+        moveToX = px;
+        moveToY = py;
+        break;
+      case PathIterator.SEG_CLOSE:
+        hasMoveTo = false;
+        break;
+      default:
+        // keep the move-to position
+        break;
+    }
+  }
+
+  /**
+   * Ensures that the buffer can hold the given number of segments.
+   * 
+   * @param capacity The required capacity.
+   */
+  private void ensureCapacity(final int capacity) {
+    if(capacity <= flags.length) return;
+    final int cap = Math.max(capacity, flags.length * 2);
+    xs = Arrays.copyOf(xs, cap);
+    ys = Arrays.copyOf(ys, cap);
+    lens = Arrays.copyOf(lens, cap);
+    rots = Arrays.copyOf(rots, cap);
+    flags = Arrays.copyOf(flags, cap);
+  }
+
+  /**
+   * Computes the rotation of a direction.
+   * 
+   * @param dx The x component of the direction.
+   * @param dy The y component of the direction.
+   * @return The rotation.
+   */
+  public static double rotation(final double dx, final double dy) {
+    if(dx == 0.0) return Math.PI * (dy > 0.0 ? 0.5 : 1.5);
+    return (dx < 0 ? Math.PI : 0) + fastArcTan(dy / dx);
+  }
+
+  /** A quarter pi. */
+  public static final double M_PI_4 = Math.PI / 4.0;
+
+  /**
+   * A fast implementation of {@link Math#atan(double)}. The maximum error is
+   * <code>0.0015</code> radians. The behavior is the same as the library
+   * function. The algorithm comes from:
+   * <em>"Efficient approximations for the arctangent function",
+   * Rajan, S. Sichun Wang Inkol, R. Joyal, A., May 2006</em>
+   * 
+   * @param a The value whose arc tangent is to be returned.
+   * @return The arc tangent of the argument.
+   * @see Math#atan(double)
+   */
+  public static double fastArcTan(final double a) {
+    if(a < -1 || a > 1) return Math.atan(a);
+    return M_PI_4 * a - a * (Math.abs(a) - 1) * (0.2447 + 0.0663 * Math.abs(a));
+  }
+
+  /**
+   * Computes the number of pen-steps of a segment. A segment has at least one
+   * step. A trailing step is only added when at least half of it is covered by
+   * the segment.
+   * 
+   * @param len The length of the segment.
+   * @param segLen The length of a step.
+   * @return The number of steps.
+   */
+  public static int steps(final double len, final double segLen) {
+    final double end = Math.max(len - segLen * 0.5, 0.0);
+    return (int) (end / segLen) + 1;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of segments.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return The x coordinate of the start of the segment.
+   */
+  public double x(final int i) {
+    return xs[i];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return The y coordinate of the start of the segment.
+   */
+  public double y(final int i) {
+    return ys[i];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return The length of the segment.
+   */
+  public double len(final int i) {
+    return lens[i];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return The rotation of the segment.
+   */
+  public double rot(final int i) {
+    return rots[i];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return Whether the segment is drawn, ie. it is neither a move-to nor a
+   *         no-op segment.
+   */
+  public boolean isDrawn(final int i) {
+    return (flags[i] & (MOVE | NOP)) == 0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return Whether this segment is the first segment of a line.
+   */
+  public boolean isFirst(final int i) {
+    return (flags[i] & FIRST) != 0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the segment.
+   * @return Whether this segment is the last segment of a line.
+   */
+  public boolean isLast(final int i) {
+    return (flags[i] & LAST) != 0;
+  }
+
+}
@@ -50,6 +50,8 @@ public class SimpleShapeDrawer extends AbstractShapeDrawer {
 
       @Override
       public void draw(final Graphics2D gfx) {
+        final RenderMetrics m = getMetrics();
+        final long start = m != null ? System.nanoTime() : 0L;
         final Graphics2D g = (Graphics2D) gfx.create();
         if(stroke != null) {
           g.setStroke(stroke);
@@ -59,6 +61,9 @@ public class SimpleShapeDrawer extends AbstractShapeDrawer {
         }
         g.draw(s);
         g.dispose();
+        if(m != null) {
+          m.drawn(System.nanoTime() - start);
+        }
       }
 
       @Override
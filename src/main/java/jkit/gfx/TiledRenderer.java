@@ -0,0 +1,272 @@
+package jkit.gfx;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders {@link Drawable}s into an image using multiple threads. The image is
+ * split into tiles that are drawn in parallel directly into the resulting
+ * image. Every tile only draws the {@link Drawable}s that are visible in the
+ * tile. Note that a {@link Drawable} visible in several tiles is drawn by
+ * several threads at once with the same pen. The bundled pens keep the state
+ * of a drawing per thread. Custom pens must do the same.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class TiledRenderer {
+
+  /** The default width and height of a tile. */
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  /**
+   * The source of the {@link Drawable}s of a tile.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static interface TileContent {
+
+    /**
+     * Draws all {@link Drawable}s visible in the tile.
+     * 
+     * @param g The graphics context of the tile.
+     * @param view The viewport of the tile.
+     */
+    void draw(Graphics2D g, Rectangle2D view);
+
+  }
+
+  /** The executor or <code>null</code> if a pool is created per image. */
+  private final ExecutorService executor;
+
+  /** The width and height of a tile. */
+  private final int tileSize;
+
+  /** The rendering hints or <code>null</code>. */
+  private RenderingHints hints;
+
+  /** The background color or <code>null</code> for a transparent image. */
+  private Color background;
+
+  /**
+   * Creates a tiled renderer that creates a thread for every available
+   * processor when rendering.
+   */
+  public TiledRenderer() {
+    this(null, DEFAULT_TILE_SIZE);
+  }
+
+  /**
+   * Creates a tiled renderer.
+   * 
+   * @param executor The executor used to draw the tiles or <code>null</code>
+   *          if a thread pool should be created for every rendered image. The
+   *          executor is not shut down by the renderer.
+   * @param tileSize The width and height of the tiles.
+   */
+  public TiledRenderer(final ExecutorService executor, final int tileSize) {
+    if(tileSize <= 0) throw new IllegalArgumentException("tileSize: " + tileSize);
+    this.executor = executor;
+    this.tileSize = tileSize;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param hints The rendering hints of every tile or <code>null</code> to use
+   *          the default hints.
+   */
+  public void setRenderingHints(final RenderingHints hints) {
+    this.hints = hints;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The rendering hints of every tile or <code>null</code>.
+   */
+  public RenderingHints getRenderingHints() {
+    return hints;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param background The background color or <code>null</code> if the image
+   *          should be transparent.
+   */
+  public void setBackground(final Color background) {
+    this.background = background;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The background color or <code>null</code>.
+   */
+  public Color getBackground() {
+    return background;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The width and height of a tile.
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /**
+   * Renders the given {@link Drawable}s in the given order.
+   * 
+   * @param drawables The drawables.
+   * @param view The rectangle in drawable coordinates that is mapped onto the
+   *          image.
+   * @param width The width of the image.
+   * @param height The height of the image.
+   * @return The image.
+   * @throws InterruptedException When the rendering is interrupted.
+   */
+  public BufferedImage render(final List<? extends Drawable> drawables,
+      final Rectangle2D view, final int width, final int height)
+      throws InterruptedException {
+    final Drawable[] arr = drawables.toArray(new Drawable[drawables.size()]);
+    for(final Drawable d : arr) {
+      // compute bounding boxes before the tiles access them concurrently
+      d.getConservativeBounds();
+    }
+    return render(new TileContent() {
+
+      @Override
+      public void draw(final Graphics2D g, final Rectangle2D view) {
+        for(final Drawable d : arr) {
+          d.drawIfVisible(g, view);
+        }
+      }
+
+    }, view, width, height);
+  }
+
+  /**
+   * Renders all {@link Drawable}s of a scene. The scene must not be modified
+   * while rendering.
+   * 
+   * @param scene The scene.
+   * @param view The rectangle in drawable coordinates that is mapped onto the
+   *          image.
+   * @param width The width of the image.
+   * @param height The height of the image.
+   * @return The image.
+   * @throws InterruptedException When the rendering is interrupted.
+   */
+  public BufferedImage render(final Scene scene, final Rectangle2D view,
+      final int width, final int height) throws InterruptedException {
+    return render(new TileContent() {
+
+      @Override
+      public void draw(final Graphics2D g, final Rectangle2D view) {
+        scene.drawVisible(g, view);
+      }
+
+    }, view, width, height);
+  }
+
+  /**
+   * Renders the content.
+   * 
+   * @param content The content.
+   * @param view The rectangle in drawable coordinates that is mapped onto the
+   *          image.
+   * @param width The width of the image.
+   * @param height The height of the image.
+   * @return The image.
+   * @throws InterruptedException When the rendering is interrupted.
+   */
+  private BufferedImage render(final TileContent content, final Rectangle2D view,
+      final int width, final int height) throws InterruptedException {
+    if(width <= 0) throw new IllegalArgumentException("width: " + width);
+    if(height <= 0) throw new IllegalArgumentException("height: " + height);
+    if(view.isEmpty()) throw new IllegalArgumentException("view: " + view);
+    final BufferedImage img = new BufferedImage(width, height,
+        BufferedImage.TYPE_INT_ARGB);
+    final AffineTransform at = AffineTransform.getScaleInstance(
+        width / view.getWidth(), height / view.getHeight());
+    at.translate(-view.getMinX(), -view.getMinY());
+    final List<Callable<Void>> tiles = new ArrayList<>();
+    for(int y = 0; y < height; y += tileSize) {
+      for(int x = 0; x < width; x += tileSize) {
+        // tiles share the raster of the image but never overlap
+        final BufferedImage tile = img.getSubimage(x, y,
+            Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+        final int tx = x;
+        final int ty = y;
+        tiles.add(new Callable<Void>() {
+
+          @Override
+          public Void call() throws Exception {
+            renderTile(content, tile, tx, ty, at);
+            return null;
+          }
+
+        });
+      }
+    }
+    final ExecutorService executor = this.executor != null ? this.executor
+        : Executors.newFixedThreadPool(Math.min(tiles.size(),
+            Runtime.getRuntime().availableProcessors()));
+    try {
+      for(final Future<Void> f : executor.invokeAll(tiles)) {
+        f.get();
+      }
+    } catch(final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if(cause instanceof Error) throw (Error) cause;
+      throw new IllegalStateException(cause);
+    } finally {
+      if(executor != this.executor) {
+        executor.shutdownNow();
+      }
+    }
+    return img;
+  }
+
+  /**
+   * Renders a tile.
+   * 
+   * @param content The content.
+   * @param tile The image of the tile.
+   * @param x The horizontal position of the tile in the image.
+   * @param y The vertical position of the tile in the image.
+   * @param at The transformation from drawable coordinates to the image.
+   */
+  private void renderTile(final TileContent content, final BufferedImage tile,
+      final int x, final int y, final AffineTransform at) {
+    final Graphics2D g = tile.createGraphics();
+    if(hints != null) {
+      g.setRenderingHints(hints);
+    }
+    if(background != null) {
+      g.setColor(background);
+      g.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+    }
+    g.setColor(Color.BLACK);
+    g.clipRect(0, 0, tile.getWidth(), tile.getHeight());
+    g.translate(-x, -y);
+    g.transform(at);
+    content.draw(g, g.getClip().getBounds2D());
+    g.dispose();
+  }
+
+}
@@ -3,6 +3,7 @@ package jkit.gfx.pen;
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 
 /**
  * A pen drawing every line with an arrow tip using a pencil style.
@@ -24,20 +25,39 @@ public class ArrowPen extends PencilPen {
 
 	@Override
 	public void end(final Graphics2D g, final int no, final double rotation) {
-		setSeed(no);
+		final RandomSource rnd = getRandom(no);
 		final double sl = segmentLength;
 		final double sl2 = sl * 0.15;
 		final double sl3 = sl * 0.50;
 		final double dx = -0.5 * segmentLength;
 		g.setStroke(new BasicStroke(1.5f));
 		final int c2 = count / 2;
+		if (isBatchStrokes()) {
+			final Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, c2 * 4);
+			for (int i = 0; i < c2; ++i) {
+				final double x = getNextX(rnd) + dx;
+				final double y = getNextY(rnd);
+				path.moveTo(x + sl, y);
+				path.lineTo(x + sl2, y + sl3);
+				path.moveTo(x + sl, y);
+				path.lineTo(x + sl2, y - sl3);
+			}
+			g.draw(path);
+			return;
+		}
 		for (int i = 0; i < c2; ++i) {
-			final double x = getNextX() + dx;
-			final double y = getNextY();
+			final double x = getNextX(rnd) + dx;
+			final double y = getNextY(rnd);
 			// g.draw(new Line2D.Double(0, 0, sl, 0));
 			g.draw(new Line2D.Double(x + sl, y, x + sl2, y + sl3));
 			g.draw(new Line2D.Double(x + sl, y, x + sl2, y - sl3));
 		}
 	}
 
+	@Override
+	public boolean preservesGraphicsState() {
+		// the end changes the stroke
+		return false;
+	}
+
 }
@@ -7,17 +7,39 @@ import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
-import java.util.Random;
 
 /**
- * A pen looking like a blood trail.
+ * A pen looking like a blood trail. A single pen can be used by multiple
+ * threads at once since the random state of a drawing is kept per thread.
  * 
  * @author Joschi <josua.krause@gmail.com>
  */
 public class BloodTrailPen extends SimplePen {
 
-  /** The random number generator. */
-  private final Random rnd = new Random();
+  /**
+   * The random state of the shape currently drawn by a thread.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class RandomContext {
+
+    /** The random number generator. */
+    final RandomSource rnd = new RandomSource();
+
+    /** The seed of the current shape. */
+    int seed;
+
+  }
+
+  /** The random state of the current thread. */
+  private final ThreadLocal<RandomContext> context = new ThreadLocal<RandomContext>() {
+
+    @Override
+    protected RandomContext initialValue() {
+      return new RandomContext();
+    }
+
+  };
 
   /** Creates a standard blood trail. */
   public BloodTrailPen() {
@@ -33,18 +55,28 @@ public class BloodTrailPen extends SimplePen {
     super(new Color(0x407F0000, true), segmentLength);
   }
 
-  /** The current seed. */
-  private int seed;
-
   @Override
   public void prepare(final Graphics2D g, final Shape s) {
     super.prepare(g, s);
-    seed = s.getBounds2D().hashCode();
+    context.get().seed = s.getBounds2D().hashCode();
+  }
+
+  /**
+   * Obtains the random number generator for a segment.
+   * 
+   * @param no The number of the segment.
+   * @return The random number generator of the current thread seeded for the
+   *         segment.
+   */
+  private RandomSource getRandom(final int no) {
+    final RandomContext ctx = context.get();
+    ctx.rnd.setSeed(ctx.seed + no);
+    return ctx.rnd;
   }
 
   @Override
   public void start(final Graphics2D g, final int no, final double rotation) {
-    rnd.setSeed(seed + no);
+    final RandomSource rnd = getRandom(no);
     final double dx = segmentLength * 0.25;
     final double dy = segmentLength * 0.25;
     final double lx = segmentLength * 0.5;
@@ -61,7 +93,7 @@ public class BloodTrailPen extends SimplePen {
 
   @Override
   public void draw(final Graphics2D g, final int no, final double rotation) {
-    rnd.setSeed(seed + no);
+    final RandomSource rnd = getRandom(no);
     final double dx = segmentLength * 0.25;
     final double dy = segmentLength * 0.25;
     final double lx = segmentLength * 0.5;
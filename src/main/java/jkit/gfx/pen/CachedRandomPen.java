@@ -1,16 +1,32 @@
 package jkit.gfx.pen;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.RenderingHints;
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.util.Random;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jkit.gfx.ImagePool;
+import jkit.gfx.RenderMetrics;
 
 /**
- * A pen caching segments to speed up drawing.
+ * A pen caching segments to speed up drawing. A single pen can be used by
+ * multiple threads at once. Rendered segments are shared between all threads
+ * and the random state of a drawing is kept per thread. The cache state is
+ * resolved once per drawing. Replaced cache states are retired by epochs and
+ * their images are released once every thread has started a newer drawing.
  * 
  * @author Joschi <josua.krause@gmail.com>
  */
@@ -28,11 +44,281 @@ public abstract class CachedRandomPen extends SimplePen {
   /** The default cache size. */
   public static final int DEFAULT_CACHE_SIZE = 20;
 
-  /** The random number generator for segments. */
-  private final Random rndSegement = new Random();
+  /** The relative tolerance of device scale changes. */
+  private static final double SCALE_EPS = 1e-6;
+
+  /** The identity transformation. */
+  private static final AffineTransform IDENTITY = new AffineTransform();
+
+  /**
+   * The maximal number of retired slots waiting for their release. Older
+   * slots are dropped without returning their images to the pool.
+   */
+  private static final int MAX_RETIRED = 64;
+
+  /**
+   * The state of the shape currently drawn by a thread.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class RandomContext {
+
+    /** The random number generator for segments. */
+    final RandomSource rndSegement = new RandomSource();
+
+    /** The random number generator for buckets. */
+    final RandomSource rndBucket = new RandomSource();
+
+    /** The seed of the current shape. */
+    int seed;
+
+    /** The cache state of the current drawing or <code>null</code>. */
+    CacheState state;
+
+    /**
+     * The epoch at which the current drawing started or
+     * {@link Long#MAX_VALUE} if the thread has not drawn yet.
+     */
+    volatile long epoch = Long.MAX_VALUE;
+
+    /**
+     * Getter.
+     * 
+     * @param no The number of the segment.
+     * @return The random number generator for segments seeded for the given
+     *         segment.
+     */
+    RandomSource segment(final int no) {
+      rndSegement.setSeed(seed + no);
+      return rndSegement;
+    }
+
+    /**
+     * Getter.
+     * 
+     * @param no The number of the segment.
+     * @param cacheSize The number of buckets.
+     * @return The bucket of the given segment.
+     */
+    int bucket(final int no, final int cacheSize) {
+      rndBucket.setSeed(seed + no);
+      return rndBucket.nextInt(cacheSize);
+    }
+
+  }
+
+  /**
+   * Slots waiting to be released.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class Retired {
+
+    /** The epoch at which the slots were retired. */
+    final long epoch;
+
+    /** The slots. */
+    final SpriteSlots slots;
+
+    /**
+     * Creates a retired entry.
+     * 
+     * @param epoch The epoch at which the slots were retired.
+     * @param slots The slots.
+     */
+    public Retired(final long epoch, final SpriteSlots slots) {
+      this.epoch = epoch;
+      this.slots = slots;
+    }
+
+  }
+
+  /** The default pool for images of cached segments. */
+  private static final ImagePool DEFAULT_POOL = new ImagePool(256, 8);
+
+  /**
+   * Getter.
+   * 
+   * @return The pool for images of cached segments shared by all pens that do
+   *         not specify a pool.
+   */
+  public static ImagePool getDefaultImagePool() {
+    return DEFAULT_POOL;
+  }
+
+  /**
+   * Slots for cached sprites. Slots can be shared between cache states. When
+   * the slots are retired their images are released as soon as no thread
+   * draws them anymore.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class SpriteSlots {
+
+    /** The sprites. */
+    final AtomicReferenceArray<Sprite> sprites;
+
+    /** Whether the sprites have been released. */
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Creates empty slots.
+     * 
+     * @param size The number of slots.
+     */
+    public SpriteSlots(final int size) {
+      sprites = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Releases the sprites once. No thread may draw the sprites anymore.
+     */
+    public void release() {
+      if(!released.compareAndSet(false, true)) return;
+      for(int i = 0; i < sprites.length(); ++i) {
+        final Sprite sprite = sprites.getAndSet(i, null);
+        if(sprite != null) {
+          sprite.release();
+        }
+      }
+    }
+
+  }
+
+  /**
+   * The immutable state of the cache. Sprites are published to the slots of
+   * the state without locking. A new state is published when the cache
+   * becomes invalid.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class CacheState {
+
+    /** The bounding box of the cached segments. */
+    final Rectangle2D bbox;
+
+    /** The segment space cache. */
+    final SpriteSlots segment;
+
+    /** The device scale of the device space cache or NaN. */
+    final double scale;
+
+    /**
+     * The device space cache indexed by bucket and rotation or
+     * <code>null</code>.
+     */
+    final SpriteSlots rotated;
+
+    /**
+     * The device space bounding boxes of every rotation as
+     * <code>x, y, width, height</code>.
+     */
+    final int[] rotBoxes;
+
+    /**
+     * Creates an empty state.
+     * 
+     * @param bbox The bounding box of the segments.
+     * @param cacheSize The number of buckets.
+     */
+    public CacheState(final Rectangle2D bbox, final int cacheSize) {
+      this(bbox, new SpriteSlots(cacheSize), Double.NaN, 0);
+    }
+
+    /**
+     * Creates a state.
+     * 
+     * @param bbox The bounding box of the segments.
+     * @param segment The segment space cache.
+     * @param scale The device scale or NaN.
+     * @param rotations The number of quantized rotations.
+     */
+    private CacheState(final Rectangle2D bbox,
+        final SpriteSlots segment,
+        final double scale, final int rotations) {
+      this.bbox = bbox;
+      this.segment = segment;
+      this.scale = scale;
+      if(rotations <= 0) {
+        rotated = null;
+        rotBoxes = null;
+        return;
+      }
+      rotated = new SpriteSlots(segment.sprites.length() * rotations);
+      rotBoxes = new int[rotations * 4];
+      for(int rot = 0; rot < rotations; ++rot) {
+        final Rectangle2D box = getDeviceTransform(scale, rot,
+            rotations).createTransformedShape(bbox).getBounds2D();
+        final int x = (int) Math.floor(box.getMinX());
+        final int y = (int) Math.floor(box.getMinY());
+        rotBoxes[rot * 4] = x;
+        rotBoxes[rot * 4 + 1] = y;
+        rotBoxes[rot * 4 + 2] = Math.max((int) Math.ceil(box.getMaxX()) - x, 1);
+        rotBoxes[rot * 4 + 3] = Math.max((int) Math.ceil(box.getMaxY()) - y, 1);
+      }
+    }
+
+    /**
+     * Creates a state with the same segment space cache and an empty device
+     * space cache.
+     * 
+     * @param scale The device scale.
+     * @param rotations The number of quantized rotations.
+     * @return The new state.
+     */
+    public CacheState withDeviceCache(final double scale, final int rotations) {
+      return new CacheState(bbox, segment, scale, rotations);
+    }
+
+    /**
+     * Whether the state uses the given slots.
+     * 
+     * @param slots The slots.
+     * @return Whether the slots belong to this state.
+     */
+    public boolean uses(final SpriteSlots slots) {
+      return segment == slots || rotated == slots;
+    }
+
+    /**
+     * Getter.
+     * 
+     * @param scale The device scale.
+     * @param rotations The number of quantized rotations.
+     * @return Whether the device space cache matches.
+     */
+    public boolean hasDeviceCache(final double scale, final int rotations) {
+      return rotBoxes != null && rotBoxes.length == rotations * 4
+          && Math.abs(scale - this.scale) <= SCALE_EPS * scale;
+    }
+
+  }
+
+  /** The contexts of all threads that have used the pen. */
+  private final List<WeakReference<RandomContext>> contexts = new ArrayList<>();
+
+  /** The state of the current thread. */
+  private final ThreadLocal<RandomContext> context = new ThreadLocal<RandomContext>() {
+
+    @Override
+    protected RandomContext initialValue() {
+      final RandomContext res = new RandomContext();
+      synchronized(retired) {
+        contexts.add(new WeakReference<>(res));
+      }
+      return res;
+    }
+
+  };
+
+  /** The current epoch. It is advanced when slots are retired. */
+  private final AtomicLong epoch = new AtomicLong();
+
+  /** The retired slots in the order of their retirement. */
+  private final List<Retired> retired = new ArrayList<>();
 
-  /** The random number generator for buckets. */
-  private final Random rndBucket = new Random();
+  /** Whether there are retired slots waiting for their release. */
+  private volatile boolean hasRetired;
 
   /** The cache size. */
   private final int cacheSize = DEFAULT_CACHE_SIZE;
@@ -56,36 +342,191 @@ public abstract class CachedRandomPen extends SimplePen {
     super(color, segmentLength);
   }
 
-  /** The cache. */
-  private final Image[] cache = new Image[cacheSize];
+  /** The cache or <code>null</code> if the cache is invalid. */
+  private final AtomicReference<CacheState> state = new AtomicReference<>();
+
+  /** The atlas or <code>null</code> if every segment has its own image. */
+  private volatile SpriteAtlas atlas;
+
+  /**
+   * Setter.
+   * 
+   * @param atlas The atlas where cached segments are stored or
+   *          <code>null</code> if every cached segment should be stored in a
+   *          separate image. The same atlas can be used by multiple pens.
+   */
+  public void setAtlas(final SpriteAtlas atlas) {
+    this.atlas = atlas;
+    invalidate();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The atlas where cached segments are stored or <code>null</code>.
+   */
+  public SpriteAtlas getAtlas() {
+    return atlas;
+  }
+
+  /** The number of quantized rotations or <code>0</code>. */
+  private volatile int rotations;
+
+  /**
+   * Setter.
+   * 
+   * @param rotations The number of quantized rotations at which segments are
+   *          cached in device space or <code>0</code> to only cache segments in
+   *          segment space. Segments drawn with a transformation consisting
+   *          only of a rotation, a uniform scaling, and a translation are then
+   *          drawn as axis aligned images at integer positions. More rotations
+   *          increase the accuracy and the memory usage. The cache is rendered
+   *          again when the scaling changes.
+   */
+  public void setRotations(final int rotations) {
+    if(rotations < 0) throw new IllegalArgumentException("rotations: " + rotations);
+    this.rotations = rotations;
+    // the segments are drawn at quantized rotations
+    changed();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of quantized rotations of the device space cache or
+   *         <code>0</code> if the device space cache is not used.
+   */
+  public int getRotations() {
+    return rotations;
+  }
 
-  /** Empties the cache. */
+  /** The pool for images of cached segments or <code>null</code>. */
+  private volatile ImagePool pool = DEFAULT_POOL;
+
+  /**
+   * Setter.
+   * 
+   * @param pool The pool for images of cached segments or <code>null</code>
+   *          if images should not be reused. Images are returned to the pool
+   *          when the cache is invalidated. Images of an atlas are not pooled.
+   */
+  public void setImagePool(final ImagePool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The pool for images of cached segments or <code>null</code>.
+   */
+  public ImagePool getImagePool() {
+    return pool;
+  }
+
+  /**
+   * Empties the cache and signals that the appearance of the pen has changed.
+   * Subclasses call this method from setters that alter the drawn segments.
+   */
   protected void invalidate() {
-    int i = cache.length;
-    while(--i >= 0) {
-      cache[i] = null;
+    changed();
+    final CacheState old = state.getAndSet(null);
+    if(old != null) {
+      retire(old, false, null);
+      final RenderMetrics m = getMetrics();
+      if(m != null) {
+        m.cacheInvalidated();
+      }
     }
   }
 
   /**
-   * Starts the next bucket.
+   * Retires a replaced cache state. Its images are released once every thread
+   * that may still draw with the state has started a newer drawing.
    * 
-   * @param no The number of the bucket.
-   * @return The value for the given bucket.
+   * @param old The replaced state.
+   * @param keepSegment Whether the segment space cache is still used by a
+   *          newer state.
+   * @param ctx The context of the current thread or <code>null</code>.
    */
-  private int getNextBucket(final int no) {
-    rndBucket.setSeed(seed + no);
-    return rndBucket.nextInt(cache.length);
+  private void retire(final CacheState old, final boolean keepSegment,
+      final RandomContext ctx) {
+    // threads announcing a later epoch see the replacement of the state
+    final long e = epoch.getAndIncrement();
+    synchronized(retired) {
+      if(old.rotated != null) {
+        retired.add(new Retired(e, old.rotated));
+      }
+      if(!keepSegment) {
+        retired.add(new Retired(e, old.segment));
+      }
+      while(retired.size() > MAX_RETIRED) {
+        // the images are left to the garbage collector
+        retired.remove(0);
+      }
+      hasRetired = !retired.isEmpty();
+    }
+    reclaim(ctx);
+  }
+
+  /**
+   * Releases all retired slots that no thread draws anymore.
+   * 
+   * @param ctx The context of the current thread or <code>null</code>. The
+   *          current thread only uses the slots of its current state.
+   */
+  private void reclaim(final RandomContext ctx) {
+    final List<SpriteSlots> free = new ArrayList<>();
+    synchronized(retired) {
+      final Iterator<Retired> it = retired.iterator();
+      while(it.hasNext()) {
+        final Retired r = it.next();
+        if(!isUsed(r, ctx)) {
+          free.add(r.slots);
+          it.remove();
+        }
+      }
+      hasRetired = !retired.isEmpty();
+    }
+    for(final SpriteSlots slots : free) {
+      slots.release();
+    }
   }
 
-  /** The current seed. */
-  private int seed;
+  /**
+   * Whether a thread may still draw with retired slots. Must be called while
+   * holding the lock of the retired slots.
+   * 
+   * @param r The retired slots.
+   * @param ctx The context of the current thread or <code>null</code>.
+   * @return Whether the slots may still be used.
+   */
+  private boolean isUsed(final Retired r, final RandomContext ctx) {
+    final Iterator<WeakReference<RandomContext>> it = contexts.iterator();
+    while(it.hasNext()) {
+      final RandomContext c = it.next().get();
+      if(c == null) {
+        // the thread has terminated
+        it.remove();
+        continue;
+      }
+      if(c == ctx) {
+        if(c.state != null && c.state.uses(r.slots)) return true;
+      } else if(c.epoch <= r.epoch) return true;
+    }
+    return false;
+  }
 
   @Override
   public void prepare(final Graphics2D g, final Shape s) {
     super.prepare(g, s);
-    seed = s.getBounds2D().hashCode();
-    rndBucket.setSeed(seed);
+    final RandomContext ctx = context.get();
+    ctx.seed = s.getBounds2D().hashCode();
+    // announce the epoch before obtaining the state
+    ctx.epoch = epoch.get();
+    ctx.state = state.get();
+    if(hasRetired) {
+      reclaim(ctx);
+    }
   }
 
   @Override
@@ -101,87 +542,351 @@ public abstract class CachedRandomPen extends SimplePen {
   }
 
   /**
-   * Setter.
+   * Getter.
    * 
-   * @param no The bucket number.
+   * @param no The number of the segment.
+   * @return The random number generator of the current thread seeded for the
+   *         given segment of the current shape.
    */
-  protected void setSeed(final int no) {
-    rndSegement.setSeed(seed + no);
+  protected RandomSource getRandom(final int no) {
+    return context.get().segment(no);
   }
 
-  /** The previous bounding box. */
-  private Rectangle2D oldBBox;
-
   @Override
   public final void draw(final Graphics2D g, final int no,
       final double rotation) {
+    final RandomContext ctx = context.get();
     if(!doCaching) {
-      setSeed(no);
-      drawSegment(g);
+      drawSegment(g, ctx.segment(no));
       return;
     }
     final Rectangle2D bbox = getBoundingBox(SEG_NORM, rotation);
-    if(oldBBox == null || !oldBBox.equals(bbox)) {
-      invalidate();
-      oldBBox = bbox;
-    }
-    final double dx = bbox.getMinX();
-    final double dy = bbox.getMinY();
-    final int width = doScale ? (int) Math.ceil(bbox.getWidth()
-        * CACHE_SCALE) : (int) Math.ceil(bbox.getWidth());
-    final int height = doScale ? (int) Math.ceil(bbox.getHeight()
-        * CACHE_SCALE) : (int) Math.ceil(bbox.getHeight());
-    final int bucket = getNextBucket(no);
-    if(cache[bucket] == null) {
-      setSeed(bucket);
-      final BufferedImage img = new BufferedImage(width, height,
-          BufferedImage.TYPE_INT_ARGB);
+    final RenderMetrics m = getMetrics();
+    final CacheState cur = getState(ctx, bbox, m);
+    final int bucket = ctx.bucket(no, cacheSize);
+    final int rotations = this.rotations;
+    if(rotations > 0) {
+      final AffineTransform at = g.getTransform();
+      if(isSimilarity(at)) {
+        drawRotated(g, at, ctx, cur, bucket, rotations);
+        return;
+      }
+    }
+    Sprite sprite = cur.segment.sprites.get(bucket);
+    boolean orphan = false;
+    if(sprite == null || !sprite.isValid()) {
+      if(m != null) {
+        m.cacheMiss();
+      }
+      final Sprite old = sprite;
+      final int width = (int) Math.ceil(bbox.getWidth());
+      final int height = (int) Math.ceil(bbox.getHeight());
+      sprite = render(g, bbox, width, height, ctx.segment(bucket));
+      orphan = !cur.segment.sprites.compareAndSet(bucket, old, sprite);
+    } else if(m != null) {
+      m.cacheHit();
+    }
+    g.translate(bbox.getMinX(), bbox.getMinY());
+    sprite.draw(g);
+    if(orphan) {
+      // another thread cached its sprite first
+      sprite.release();
+    }
+  }
+
+  /**
+   * Obtains the cache state of the current drawing for the given bounding
+   * box. The state of the drawing is only replaced when the bounding box has
+   * changed since the drawing was prepared.
+   * 
+   * @param ctx The context of the current thread.
+   * @param bbox The bounding box of the segments.
+   * @param m The metrics or <code>null</code>.
+   * @return The state.
+   */
+  private CacheState getState(final RandomContext ctx, final Rectangle2D bbox,
+      final RenderMetrics m) {
+    final CacheState own = ctx.state;
+    if(own != null && own.bbox.equals(bbox)) return own;
+    final CacheState cur = state.get();
+    if(cur != null && cur.bbox.equals(bbox)) {
+      ctx.state = cur;
+      return cur;
+    }
+    if(cur != null && m != null) {
+      m.cacheInvalidated();
+    }
+    final CacheState next = new CacheState(bbox, cacheSize);
+    ctx.state = next;
+    if(state.compareAndSet(cur, next)) {
+      if(cur != null) {
+        retire(cur, false, ctx);
+      }
+    } else {
+      // another thread won so the new state is only used for this drawing
+      retire(next, false, ctx);
+    }
+    return next;
+  }
+
+  /**
+   * Whether the transformation consists only of a rotation, a uniform scaling,
+   * and a translation.
+   * 
+   * @param at The transformation.
+   * @return Whether the transformation is a similarity transformation without
+   *         reflection.
+   */
+  static boolean isSimilarity(final AffineTransform at) {
+    final double m00 = at.getScaleX();
+    final double m10 = at.getShearY();
+    final double eps = 1e-9 * (Math.abs(m00) + Math.abs(m10));
+    return eps > 0.0
+        && Math.abs(m00 - at.getScaleY()) <= eps
+        && Math.abs(m10 + at.getShearX()) <= eps;
+  }
+
+  /**
+   * Computes the transformation from segment space into device space.
+   * 
+   * @param scale The device scale.
+   * @param rot The quantized rotation.
+   * @param rotations The number of quantized rotations.
+   * @return The transformation.
+   */
+  static AffineTransform getDeviceTransform(final double scale,
+      final int rot, final int rotations) {
+    final AffineTransform xf = AffineTransform.getScaleInstance(scale, scale);
+    xf.rotate(rot * Math.PI * 2.0 / rotations);
+    return xf;
+  }
+
+  /**
+   * Draws a segment using the device space cache.
+   * 
+   * @param g The graphics context.
+   * @param at The current transformation of the graphics context.
+   * @param ctx The context of the current thread.
+   * @param state The cache state.
+   * @param bucket The bucket.
+   * @param rotations The number of quantized rotations.
+   */
+  private void drawRotated(final Graphics2D g, final AffineTransform at,
+      final RandomContext ctx, final CacheState state, final int bucket,
+      final int rotations) {
+    final double m00 = at.getScaleX();
+    final double m10 = at.getShearY();
+    final double scale = Math.sqrt(m00 * m00 + m10 * m10);
+    final RenderMetrics m = getMetrics();
+    CacheState cur = state;
+    if(!cur.hasDeviceCache(scale, rotations)) {
+      if(cur.rotBoxes != null && m != null) {
+        m.cacheInvalidated();
+      }
+      final CacheState next = cur.withDeviceCache(scale, rotations);
+      ctx.state = next;
+      if(this.state.compareAndSet(cur, next)) {
+        retire(cur, true, ctx);
+      } else {
+        // another thread won so the new state is only used for this drawing
+        retire(next, true, ctx);
+      }
+      cur = next;
+    }
+    int rot = (int) Math.round(Math.atan2(m10, m00) * rotations / (Math.PI * 2.0))
+        % rotations;
+    if(rot < 0) {
+      rot += rotations;
+    }
+    final int[] boxes = cur.rotBoxes;
+    final int pos = bucket * rotations + rot;
+    Sprite sprite = cur.rotated.sprites.get(pos);
+    boolean orphan = false;
+    if(sprite == null || !sprite.isValid()) {
+      if(m != null) {
+        m.cacheMiss();
+      }
+      final Sprite old = sprite;
+      final AffineTransform xf = getDeviceTransform(cur.scale, rot, rotations);
+      xf.preConcatenate(AffineTransform.getTranslateInstance(
+          -boxes[rot * 4], -boxes[rot * 4 + 1]));
+      sprite = render(g, xf, boxes[rot * 4 + 2], boxes[rot * 4 + 3],
+          ctx.segment(bucket));
+      orphan = !cur.rotated.sprites.compareAndSet(pos, old, sprite);
+    } else if(m != null) {
+      m.cacheHit();
+    }
+    final int x = (int) Math.round(at.getTranslateX()) + boxes[rot * 4];
+    final int y = (int) Math.round(at.getTranslateY()) + boxes[rot * 4 + 1];
+    g.setTransform(IDENTITY);
+    sprite.draw(g, x, y);
+    g.setTransform(at);
+    if(orphan) {
+      sprite.release();
+    }
+  }
+
+  /**
+   * Renders the current segment into a sprite.
+   * 
+   * @param g The graphics context of the shape.
+   * @param bbox The bounding box of the segment.
+   * @param width The width of the sprite.
+   * @param height The height of the sprite.
+   * @param rnd The random number generator seeded for the segment.
+   * @return The sprite.
+   */
+  private Sprite render(final Graphics2D g, final Rectangle2D bbox,
+      final int width, final int height, final RandomSource rnd) {
+    final AffineTransform xf = AffineTransform.getTranslateInstance(
+        -bbox.getMinX(), -bbox.getMinY());
+    if(!doScale) return render(g, xf, width, height, rnd);
+    final int scaledWidth = (int) Math.ceil(bbox.getWidth() * CACHE_SCALE);
+    final int scaledHeight = (int) Math.ceil(bbox.getHeight() * CACHE_SCALE);
+    xf.preConcatenate(AffineTransform.getScaleInstance(CACHE_SCALE, CACHE_SCALE));
+    final BufferedImage img = new BufferedImage(
+        scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D tmp = img.createGraphics();
+    renderSegment(tmp, g, xf, rnd);
+    tmp.dispose();
+    final Image scaled = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+    final SpriteAtlas atlas = this.atlas;
+    final Sprite sprite = atlas != null ? atlas.allocate(width, height) : null;
+    if(sprite == null) return new Sprite(scaled, width, height);
+    synchronized(atlas) {
+      final Graphics2D gfx = sprite.createGraphics();
+      gfx.drawImage(scaled, 0, 0, null);
+      gfx.dispose();
+    }
+    return sprite;
+  }
+
+  /**
+   * Renders the current segment into a sprite.
+   * 
+   * @param g The graphics context of the shape.
+   * @param xf The transformation from segment space into the sprite.
+   * @param width The width of the sprite.
+   * @param height The height of the sprite.
+   * @param rnd The random number generator seeded for the segment.
+   * @return The sprite.
+   */
+  private Sprite render(final Graphics2D g, final AffineTransform xf,
+      final int width, final int height, final RandomSource rnd) {
+    if((xf.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0) {
+      final SpriteCanvas canvas = new SpriteCanvas(width, height,
+          xf.getTranslateX(), xf.getTranslateY(), g.getColor());
+      if(drawSegment(canvas, rnd)) return createSprite(canvas.getRGB(), width, height);
+    }
+    final SpriteAtlas atlas = this.atlas;
+    final Sprite sprite = atlas != null ? atlas.allocate(width, height) : null;
+    if(sprite == null) {
+      final ImagePool pool = this.pool;
+      if(pool == null) {
+        final BufferedImage img = new BufferedImage(
+            width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gfx = img.createGraphics();
+        renderSegment(gfx, g, xf, rnd);
+        gfx.dispose();
+        return new Sprite(img, width, height);
+      }
+      final BufferedImage img = pool.acquire(width, height, getMetrics());
       final Graphics2D gfx = img.createGraphics();
-      gfx.setColor(g.getColor());
-      gfx.setStroke(g.getStroke());
-      gfx.setRenderingHints(g.getRenderingHints());
-      gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-          RenderingHints.VALUE_ANTIALIAS_ON);
-      if(doScale) {
-        gfx.scale(CACHE_SCALE, CACHE_SCALE);
-      }
-      gfx.translate(-dx, -dy);
-      drawSegment(gfx);
+      // pooled images may contain old content
+      gfx.setComposite(AlphaComposite.Clear);
+      gfx.fillRect(0, 0, img.getWidth(), img.getHeight());
+      gfx.setComposite(AlphaComposite.SrcOver);
+      gfx.clipRect(0, 0, width, height);
+      renderSegment(gfx, g, xf, rnd);
+      gfx.dispose();
+      return new Sprite(img, width, height, pool);
+    }
+    synchronized(atlas) {
+      final Graphics2D gfx = sprite.createGraphics();
+      renderSegment(gfx, g, xf, rnd);
       gfx.dispose();
-      cache[bucket] = doScale ? img.getScaledInstance(
-          (int) Math.ceil(bbox.getWidth()),
-          (int) Math.ceil(bbox.getHeight()), Image.SCALE_SMOOTH)
-          : img;
     }
-    g.translate(dx, dy);
-    g.drawImage(cache[bucket], 0, 0, null);
-    // g.setColor(new Color(0x10ff00ff, true));
-    // g.fill(new Rectangle2D.Double(0, 0, width, height));
+    return sprite;
   }
 
   /**
-   * Renders the current segment.
+   * Creates a sprite from pixels.
    * 
-   * @param g The graphics context.
+   * @param argb The non-premultiplied ARGB values in rows.
+   * @param width The width of the sprite.
+   * @param height The height of the sprite.
+   * @return The sprite.
    */
-  protected abstract void drawSegment(Graphics2D g);
+  private Sprite createSprite(final int[] argb, final int width, final int height) {
+    final SpriteAtlas atlas = this.atlas;
+    final Sprite sprite = atlas != null ? atlas.allocate(width, height) : null;
+    if(sprite == null) {
+      final ImagePool pool = this.pool;
+      final BufferedImage img = pool != null ? pool.acquire(width, height, getMetrics())
+          : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      img.setRGB(0, 0, width, height, argb, 0, width);
+      return pool != null ? new Sprite(img, width, height, pool)
+          : new Sprite(img, width, height);
+    }
+    synchronized(atlas) {
+      sprite.setRGB(argb);
+    }
+    return sprite;
+  }
 
   /**
-   * Getter.
+   * Renders the current segment onto a cache image.
    * 
-   * @return The next random value.
+   * @param gfx The graphics context of the cache image.
+   * @param g The graphics context of the shape.
+   * @param xf The transformation from segment space into the cache image.
+   * @param rnd The random number generator seeded for the segment.
    */
-  protected double rndNextDouble() {
-    return rndSegement.nextDouble();
+  private void renderSegment(final Graphics2D gfx, final Graphics2D g,
+      final AffineTransform xf, final RandomSource rnd) {
+    gfx.setColor(g.getColor());
+    gfx.setStroke(g.getStroke());
+    gfx.setRenderingHints(g.getRenderingHints());
+    gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+        RenderingHints.VALUE_ANTIALIAS_ON);
+    gfx.transform(xf);
+    drawSegment(gfx, rnd);
   }
 
   /**
-   * Getter.
+   * {@inheritDoc} Subclasses that change the graphics context in
+   * {@link #drawSegment(Graphics2D, RandomSource)}, {@link #start(Graphics2D, int, double)},
+   * or {@link #end(Graphics2D, int, double)} must return <code>false</code>.
+   */
+  @Override
+  public boolean preservesGraphicsState() {
+    return true;
+  }
+
+  /**
+   * Renders the current segment. When caching is disabled the segment is
+   * rendered directly onto the graphics context of the shape.
+   * 
+   * @param g The graphics context.
+   * @param rnd The random number generator seeded for the segment. It
+   *          belongs to the current thread.
+   */
+  protected abstract void drawSegment(Graphics2D g, RandomSource rnd);
+
+  /**
+   * Renders the current segment directly into the pixels of a cached segment.
+   * This is only called when the segment is cached without scaling or
+   * rotation. Pens that can render this way must not consume random values
+   * when returning <code>false</code>.
    * 
-   * @return The next gaussian random value.
+   * @param canvas The pixels.
+   * @param rnd The random number generator seeded for the segment. It
+   *          belongs to the current thread.
+   * @return Whether the segment was rendered. Otherwise
+   *         {@link #drawSegment(Graphics2D, RandomSource)} is used.
    */
-  protected double rndNextGaussian() {
-    return rndSegement.nextGaussian();
+  protected boolean drawSegment(final SpriteCanvas canvas, final RandomSource rnd) {
+    return false;
   }
 
 }
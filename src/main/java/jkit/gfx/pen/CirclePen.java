@@ -37,29 +37,41 @@ public class CirclePen extends SimplePen {
 
   @Override
   public void start(final Graphics2D g, final int no, final double rotation) {
+    final Color c = g.getColor();
     g.setColor(Color.BLUE);
     g.fill(circ);
     g.setColor(Color.BLACK);
     g.draw(circ);
+    g.setColor(c);
   }
 
   @Override
   public void draw(final Graphics2D g, final int no, final double rotation) {
+    final Color c = g.getColor();
     g.fill(circ);
     g.setColor(Color.BLACK);
     g.draw(circ);
+    g.setColor(c);
   }
 
   @Override
   public void end(final Graphics2D g, final int no, final double rotation) {
+    final Color c = g.getColor();
     g.setColor(Color.RED);
     g.fill(circ);
     g.setColor(Color.BLACK);
     g.draw(circ);
+    g.setColor(c);
+  }
+
+  @Override
+  public boolean preservesGraphicsState() {
+    return true;
   }
 
   @Override
   public Rectangle2D getBoundingBox(final int type, final double rotation) {
+    ensureInitialized();
     return getBounds(circ);
   }
 
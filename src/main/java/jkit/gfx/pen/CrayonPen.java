@@ -4,6 +4,7 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 
 /**
@@ -13,12 +14,18 @@ import java.awt.geom.Rectangle2D;
  */
 public class CrayonPen extends CachedRandomPen {
 
+  /** The stroke of the dots. */
+  private static final BasicStroke STROKE = new BasicStroke(1f);
+
   /** The thickness of the crayon line. */
   private double thickness;
 
   /** The pressure of the crayon line. */
   private double pressure;
 
+  /** Whether the dots of a pen-step are filled as one path. */
+  private volatile boolean batchDots;
+
   /**
    * Creates a crayon pen with the given color and thickness.
    * 
@@ -41,6 +48,7 @@ public class CrayonPen extends CachedRandomPen {
     super(color);
     this.thickness = thickness;
     this.pressure = pressure;
+    usedStroke = STROKE;
   }
 
   /**
@@ -49,6 +57,7 @@ public class CrayonPen extends CachedRandomPen {
    * @param pressure The pressure.
    */
   public void setPressure(final double pressure) {
+    if(this.pressure == pressure) return;
     this.pressure = pressure;
     invalidate();
   }
@@ -68,6 +77,7 @@ public class CrayonPen extends CachedRandomPen {
    * @param thickness The thickness.
    */
   public void setThickness(final double thickness) {
+    if(this.thickness == thickness) return;
     this.thickness = thickness;
     invalidate();
   }
@@ -81,15 +91,38 @@ public class CrayonPen extends CachedRandomPen {
     return thickness;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param batchDots Whether the dots of a pen-step are filled as one path
+   *          instead of filling every dot on its own. This only affects
+   *          segments that are not written directly into the pixels of a
+   *          cached segment. Overlapping dots no longer darken each other
+   *          when the color is translucent.
+   */
+  public void setBatchDots(final boolean batchDots) {
+    this.batchDots = batchDots;
+    invalidate();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the dots of a pen-step are filled as one path.
+   */
+  public boolean isBatchDots() {
+    return batchDots;
+  }
+
   @Override
   public void prepare(final Graphics2D g, final Shape s) {
     super.prepare(g, s);
-    g.setStroke(new BasicStroke(1f));
+    g.setStroke(STROKE);
     postPrepare(g);
   }
 
   /** The cached bounding-box. */
-  private Rectangle2D bbox;
+  private volatile Rectangle2D bbox;
 
   @Override
   protected void invalidate() {
@@ -98,36 +131,80 @@ public class CrayonPen extends CachedRandomPen {
   }
 
   @Override
-  protected void drawSegment(final Graphics2D g) {
+  protected void drawSegment(final Graphics2D g, final RandomSource rnd) {
+    final int t = (int) Math.round(thickness * pressure);
+    final double ht = thickness * 0.5;
+    if(batchDots) {
+      final Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO,
+          (int) (segmentLength + 3.0) * t * 5);
+      for(double pos = 0.0; pos <= segmentLength + 2.0; pos += 1.0) {
+        for(int i = 0; i < t; ++i) {
+          final double x = pos - 0.5;
+          final double y = rnd.nextDouble() * thickness - ht - 0.5;
+          path.moveTo(x, y);
+          path.lineTo(x + 1.0, y);
+          path.lineTo(x + 1.0, y + 1.0);
+          path.lineTo(x, y + 1.0);
+          path.closePath();
+        }
+      }
+      g.fill(path);
+      return;
+    }
+    // the graphics context does not keep the shape
+    final Rectangle2D dot = new Rectangle2D.Double();
+    for(double pos = 0.0; pos <= segmentLength + 2.0; pos += 1.0) {
+      for(int i = 0; i < t; ++i) {
+        final double h = rnd.nextDouble() * thickness;
+        dot.setRect(pos - 0.5, h - ht - 0.5, 1.0, 1.0);
+        g.fill(dot);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc} The dots are written directly into the pixels.
+   */
+  @Override
+  protected boolean drawSegment(final SpriteCanvas canvas, final RandomSource rnd) {
     final int t = (int) Math.round(thickness * pressure);
     final double ht = thickness * 0.5;
     for(double pos = 0.0; pos <= segmentLength + 2.0; pos += 1.0) {
       for(int i = 0; i < t; ++i) {
-        final double h = rndNextDouble() * thickness;
-        final Shape s = new Rectangle2D.Double(pos - 0.5, h - ht - 0.5,
-            1.0, 1.0);
-        g.fill(s);
+        final double h = rnd.nextDouble() * thickness;
+        canvas.fillRect(pos - 0.5, h - ht - 0.5, 1.0, 1.0);
       }
     }
+    return true;
   }
 
   @Override
   public Rectangle2D getBoundingBox(final int type, final double rotation) {
     if(bbox == null) {
-      final double posMin = 0.0;
-      final double posMax = segmentLength + 2.0;
-      final double ht = thickness * 0.5;
-      final double minH = 0;
-      final double maxH = thickness;
-      final double left = posMin - 0.5;
-      final double right = posMax + 0.5;
-      final double top = minH - ht - 0.5;
-      final double bottom = maxH - ht + 0.5;
-      final Shape s = new Rectangle2D.Double(left, top, right - left,
-          bottom - top);
-      bbox = getBounds(s);
+      bbox = getBoundingBoxFor(thickness);
     }
     return bbox;
   }
 
+  /**
+   * Computes the bounding box of a segment without altering the pen.
+   * 
+   * @param thickness The thickness of the crayon line.
+   * @return The bounding box of a segment with the given thickness.
+   */
+  public Rectangle2D getBoundingBoxFor(final double thickness) {
+    final double posMin = 0.0;
+    final double posMax = segmentLength + 2.0;
+    final double ht = thickness * 0.5;
+    final double minH = 0;
+    final double maxH = thickness;
+    final double left = posMin - 0.5;
+    final double right = posMax + 0.5;
+    final double top = minH - ht - 0.5;
+    final double bottom = maxH - ht + 0.5;
+    final Shape s = new Rectangle2D.Double(left, top, right - left,
+        bottom - top);
+    return getBounds(s);
+  }
+
 }
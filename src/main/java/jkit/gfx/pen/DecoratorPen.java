@@ -3,6 +3,9 @@ package jkit.gfx.pen;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jkit.gfx.RenderMetrics;
 
 /**
  * A pen decorating another pen.
@@ -14,6 +17,9 @@ public abstract class DecoratorPen implements Pen {
   /** The other pen. */
   protected final Pen pen;
 
+  /** The number of changes of the decoration. */
+  private final AtomicLong changes = new AtomicLong();
+
   /**
    * Creates a decorator pen.
    * 
@@ -43,6 +49,33 @@ public abstract class DecoratorPen implements Pen {
     pen.end(g, no, rotation);
   }
 
+  @Override
+  public boolean preservesGraphicsState() {
+    return pen.preservesGraphicsState();
+  }
+
+  @Override
+  public void setMetrics(final RenderMetrics metrics) {
+    pen.setMetrics(metrics);
+  }
+
+  /**
+   * {@inheritDoc} The version changes with the version of the other pen and
+   * with changes of the decoration.
+   */
+  @Override
+  public long getVersion() {
+    return pen.getVersion() + changes.get();
+  }
+
+  /**
+   * Signals that the appearance of the decoration has changed. Subclasses
+   * call this method from setters that alter the drawn segments.
+   */
+  protected void changed() {
+    changes.incrementAndGet();
+  }
+
   @Override
   public double segmentLength() {
     return pen.segmentLength();
@@ -53,4 +86,14 @@ public abstract class DecoratorPen implements Pen {
     return pen.getBoundingBox(type, rotation);
   }
 
+  @Override
+  public double getMaxExtent() {
+    return pen.getMaxExtent();
+  }
+
+  @Override
+  public Rectangle2D getConservativeSpecialBounds(final Shape s) {
+    return getSpecialBounds(s);
+  }
+
 }
@@ -85,4 +85,12 @@ public class FacingTrianglePen extends SimplePen {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public double getMaxExtent() {
+    ensureInitialized();
+    // both triangles lie within this rectangle
+    return getExtent(getBounds(new Rectangle2D.Double(width, -distance,
+        width, distance * 2.0)));
+  }
+
 }
@@ -67,6 +67,11 @@ public class LinePen extends SimplePen {
     g.draw(new Line2D.Double(0, 0, segmentLength, 0));
   }
 
+  @Override
+  public boolean preservesGraphicsState() {
+    return true;
+  }
+
   @Override
   public Rectangle2D getBoundingBox(final int type, final double rotation) {
     final Shape s = new Line2D.Double(0, 0, segmentLength, 0);
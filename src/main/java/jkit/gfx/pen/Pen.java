@@ -5,8 +5,13 @@ import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 
+import jkit.gfx.RenderMetrics;
+
 /**
- * A pen draws the outline of a shape in a certain way.
+ * A pen draws the outline of a shape in a certain way. A pen may draw several
+ * shapes on different threads at once. State that is set in
+ * {@link #prepare(Graphics2D, Shape)} and used while drawing the shape must
+ * therefore be kept per thread.
  * 
  * @author Joschi <josua.krause@gmail.com>
  * 
@@ -78,7 +83,9 @@ public interface Pen {
 	void end(Graphics2D g, int no, double rotation);
 
 	/**
-	 * The bounding box of the segment.
+	 * The bounding box of the segment. This method may be called concurrently
+	 * when the bounding box of a large shape is computed and therefore must not
+	 * change the appearance of the pen.
 	 * 
 	 * @param type
 	 *            The type of segment. One of {@link #SEG_NORM},
@@ -89,6 +96,41 @@ public interface Pen {
 	 */
 	Rectangle2D getBoundingBox(int type, double rotation);
 
+	/**
+	 * The maximal distance of any point drawn by a segment from the start of
+	 * the segment. This covers every type of segment and every rotation, so
+	 * that a shape can be culled by its bounding box enlarged by this value
+	 * without computing the bounding boxes of its segments. The value must
+	 * never be smaller than the extent of any bounding box returned by
+	 * {@link #getBoundingBox(int, double)} since drawn segments would be culled
+	 * otherwise. Pens that cannot compute the exact value should over-estimate
+	 * it. The value should be cheap to compute and may be called concurrently.
+	 * 
+	 * @return The maximal extent of a segment.
+	 */
+	double getMaxExtent();
+
+	/**
+	 * The version of the appearance of the pen. The version changes whenever
+	 * the pen is changed in a way that alters the drawn segments, e.g., by
+	 * setting its color. Images drawn with the pen are stale when the version
+	 * differs from the version at the time of drawing. The value may be
+	 * called concurrently.
+	 * 
+	 * @return The version of the appearance.
+	 */
+	long getVersion();
+
+	/**
+	 * Sets the metrics receiving measurements of the pen. Pens without internal
+	 * state worth measuring may ignore the metrics.
+	 * 
+	 * @param metrics
+	 *            The metrics or <code>null</code> if no measurements should
+	 *            be taken.
+	 */
+	void setMetrics(RenderMetrics metrics);
+
 	/**
 	 * Calculates a special bounding box for the complete shape. Generally, this
 	 * method should return <code>null</code>.
@@ -100,6 +142,33 @@ public interface Pen {
 	 */
 	Rectangle2D getSpecialBounds(Shape s);
 
+	/**
+	 * Calculates a cheap bounding box containing the special bounding box of
+	 * the complete shape. This box is used for conservative bounds which are
+	 * computed before drawing and therefore must not require expensive
+	 * computations like the segmentation of the shape. The box may be larger
+	 * than {@link #getSpecialBounds(Shape)}.
+	 * 
+	 * @param s
+	 *            The shape for the bounds.
+	 * @return <code>null</code> if this pen has no special bounding box or a
+	 *         box containing the special bounds.
+	 */
+	Rectangle2D getConservativeSpecialBounds(Shape s);
+
+	/**
+	 * Whether {@link #start(Graphics2D, int, double)},
+	 * {@link #draw(Graphics2D, int, double)}, and
+	 * {@link #end(Graphics2D, int, double)} leave the graphics context
+	 * unchanged except for its transformation. When this is the case the
+	 * shape drawer can draw all segments on the same graphics context instead
+	 * of creating a copy for every segment.
+	 * 
+	 * @return Whether the drawing methods only change the transformation of
+	 *         the graphics context.
+	 */
+	boolean preservesGraphicsState();
+
 	/**
 	 * Getter.
 	 * 
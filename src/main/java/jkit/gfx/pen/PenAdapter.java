@@ -3,6 +3,9 @@ package jkit.gfx.pen;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jkit.gfx.RenderMetrics;
 
 /**
  * An adapter for a pen.
@@ -12,6 +15,40 @@ import java.awt.geom.Rectangle2D;
  */
 public abstract class PenAdapter implements Pen {
 
+	/** The metrics or <code>null</code>. */
+	private volatile RenderMetrics metrics;
+
+	/** The version of the appearance. */
+	private final AtomicLong version = new AtomicLong();
+
+	@Override
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Signals that the appearance of the pen has changed. Subclasses call this
+	 * method from setters that alter the drawn segments.
+	 */
+	protected void changed() {
+		version.incrementAndGet();
+	}
+
+	@Override
+	public void setMetrics(final RenderMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Getter.
+	 * 
+	 * @return The metrics or <code>null</code> if no measurements should be
+	 *         taken.
+	 */
+	public RenderMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
 	public void start(final Graphics2D g, final int no, final double rotation) {
 		draw(g, no, rotation);
@@ -22,9 +59,45 @@ public abstract class PenAdapter implements Pen {
 		draw(g, no, rotation);
 	}
 
+	/**
+	 * {@inheritDoc} There is no safe default since the bounding boxes are
+	 * only known at given rotations. Pens whose bounding boxes do not depend
+	 * on the rotation can return the largest {@link #getExtent(Rectangle2D)}
+	 * of the boxes at a single rotation. Other pens must cover the boxes of
+	 * every rotation, for example with the extent of a box containing all of
+	 * them.
+	 */
+	@Override
+	public abstract double getMaxExtent();
+
+	/**
+	 * Computes the maximal distance of a rectangle from the origin. The
+	 * distance does not change when the rectangle is rotated around the
+	 * origin.
+	 * 
+	 * @param box
+	 *            The rectangle.
+	 * @return The distance of the farthest corner.
+	 */
+	public static double getExtent(final Rectangle2D box) {
+		final double x = Math.max(Math.abs(box.getMinX()), Math.abs(box.getMaxX()));
+		final double y = Math.max(Math.abs(box.getMinY()), Math.abs(box.getMaxY()));
+		return Math.sqrt(x * x + y * y);
+	}
+
 	@Override
 	public Rectangle2D getSpecialBounds(final Shape s) {
 		return null;
 	}
 
+	@Override
+	public Rectangle2D getConservativeSpecialBounds(final Shape s) {
+		return getSpecialBounds(s);
+	}
+
+	@Override
+	public boolean preservesGraphicsState() {
+		return false;
+	}
+
 }
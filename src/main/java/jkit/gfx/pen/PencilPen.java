@@ -5,6 +5,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 
 /**
@@ -32,6 +33,12 @@ public class PencilPen extends CachedRandomPen {
   /** The number of lines. */
   protected int count = 25;
 
+  /** Whether the lines of a pen-step are drawn as one path. */
+  private volatile boolean batchStrokes;
+
+  /** The stroke of the lines. */
+  private static final BasicStroke STROKE = new BasicStroke(.5f);
+
   /** Creates a standard pencil pen. */
   public PencilPen() {
     this(10.0);
@@ -44,6 +51,7 @@ public class PencilPen extends CachedRandomPen {
    */
   public PencilPen(final double segmentLength) {
     super(new Color(0x40303030, true), segmentLength);
+    usedStroke = STROKE;
   }
 
   /**
@@ -54,12 +62,13 @@ public class PencilPen extends CachedRandomPen {
    */
   public PencilPen(final Color color, final double segmentLength) {
     super(new Color(color.getRGB() | 0x40000000, true), segmentLength);
+    usedStroke = STROKE;
   }
 
   @Override
   public void prepare(final Graphics2D g, final Shape s) {
     super.prepare(g, s);
-    g.setStroke(new BasicStroke(.5f));
+    g.setStroke(STROKE);
     postPrepare(g);
   }
 
@@ -92,28 +101,31 @@ public class PencilPen extends CachedRandomPen {
   /**
    * Getter.
    * 
+   * @param rnd The random number generator of the segment.
    * @return Computes the next x position.
    */
-  protected final double getNextX() {
-    return rndNextGaussian() * lx + dx;
+  protected final double getNextX(final RandomSource rnd) {
+    return rnd.nextGaussian() * lx + dx;
   }
 
   /**
    * Getter.
    * 
+   * @param rnd The random number generator of the segment.
    * @return Computes the next y position.
    */
-  protected final double getNextY() {
-    return rndNextGaussian() * ly + dy;
+  protected final double getNextY(final RandomSource rnd) {
+    return rnd.nextGaussian() * ly + dy;
   }
 
   /**
    * Getter.
    * 
+   * @param rnd The random number generator of the segment.
    * @return Computes the next length.
    */
-  protected final double getNextLine() {
-    return rndNextGaussian() * ll;
+  protected final double getNextLine(final RandomSource rnd) {
+    return rnd.nextGaussian() * ll;
   }
 
   /** The gaussian cut off value. */
@@ -173,18 +185,53 @@ public class PencilPen extends CachedRandomPen {
     return GAUSS_NULL * ll;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param batchStrokes Whether the lines of a pen-step are drawn as one path
+   *          instead of drawing every line on its own. This is faster when
+   *          drawing without anti-aliasing but slower with anti-aliasing, which
+   *          is always used for cached segments. Overlapping lines no longer
+   *          darken each other when the color is translucent.
+   */
+  public void setBatchStrokes(final boolean batchStrokes) {
+    this.batchStrokes = batchStrokes;
+    invalidate();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the lines of a pen-step are drawn as one path.
+   */
+  public boolean isBatchStrokes() {
+    return batchStrokes;
+  }
+
   @Override
-  protected void drawSegment(final Graphics2D g) {
+  protected void drawSegment(final Graphics2D g, final RandomSource rnd) {
+    if(batchStrokes) {
+      final Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, count * 2);
+      for(int i = 0; i < count; ++i) {
+        final double x = getNextX(rnd);
+        final double y = getNextY(rnd);
+        final double len = getNextLine(rnd);
+        path.moveTo(x, y);
+        path.lineTo(x + len, y);
+      }
+      g.draw(path);
+      return;
+    }
     for(int i = 0; i < count; ++i) {
-      final double x = getNextX();
-      final double y = getNextY();
-      final double len = getNextLine();
+      final double x = getNextX(rnd);
+      final double y = getNextY(rnd);
+      final double len = getNextLine(rnd);
       g.draw(new Line2D.Double(x, y, x + len, y));
     }
   }
 
   /** The bounding box cache. */
-  private Rectangle2D bbox;
+  private volatile Rectangle2D bbox;
 
   @Override
   protected void invalidate() {
@@ -194,6 +241,7 @@ public class PencilPen extends CachedRandomPen {
 
   @Override
   public Rectangle2D getBoundingBox(final int type, final double rotation) {
+    ensureInitialized();
     if(bbox == null) {
       final double left = getMinX() + getMinLine();
       final double right = getMaxX() + getMaxLine();
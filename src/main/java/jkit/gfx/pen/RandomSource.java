@@ -0,0 +1,157 @@
+package jkit.gfx.pen;
+
+/**
+ * A fast random number generator for pens. Pens reseed the generator for
+ * every segment so that segments look the same no matter in which order they
+ * are drawn. In contrast to {@link java.util.Random} reseeding is cheap, no
+ * atomic operations are involved, and gaussian values are computed with the
+ * ziggurat method instead of the polar method. The generator is SplitMix64.
+ * An instance must not be used by multiple threads at once.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public final class RandomSource {
+
+  /** The increment of the state. */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** The number of ziggurat layers. */
+  private static final int LAYERS = 128;
+
+  /** The start of the tail of the ziggurat. */
+  private static final double R = 3.442619855899;
+
+  /** The area of every ziggurat layer. */
+  private static final double V = 9.91256303526217e-3;
+
+  /** The scale of signed 32 bit integers. */
+  private static final double M = 2147483648.0;
+
+  /** The thresholds for values falling into the inner rectangle of a layer. */
+  private static final long[] KN = new long[LAYERS];
+
+  /** The widths of the layers divided by {@link #M}. */
+  private static final double[] WN = new double[LAYERS];
+
+  /** The density at the layer boundaries. */
+  private static final double[] FN = new double[LAYERS];
+
+  static {
+    double dn = R;
+    double tn = dn;
+    final double q = V / Math.exp(-0.5 * dn * dn);
+    KN[0] = (long) (dn / q * M);
+    KN[1] = 0;
+    WN[0] = q / M;
+    WN[LAYERS - 1] = dn / M;
+    FN[0] = 1.0;
+    FN[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+    for(int i = LAYERS - 2; i >= 1; --i) {
+      dn = Math.sqrt(-2.0 * Math.log(V / dn + Math.exp(-0.5 * dn * dn)));
+      KN[i + 1] = (long) (dn / tn * M);
+      tn = dn;
+      FN[i] = Math.exp(-0.5 * dn * dn);
+      WN[i] = dn / M;
+    }
+  }
+
+  /** The state. */
+  private long state;
+
+  /** Creates a random source with the seed <code>0</code>. */
+  public RandomSource() {
+    this(0L);
+  }
+
+  /**
+   * Creates a random source.
+   * 
+   * @param seed The seed.
+   */
+  public RandomSource(final long seed) {
+    setSeed(seed);
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param seed The seed. The same seed always produces the same sequence.
+   */
+  public void setSeed(final long seed) {
+    state = seed;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The next random 64 bit value.
+   */
+  public long nextLong() {
+    long z = (state += GOLDEN_GAMMA);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param bound The exclusive upper bound. Must be positive.
+   * @return The next random value between <code>0</code> inclusive and
+   *         <code>bound</code> exclusive.
+   */
+  public int nextInt(final int bound) {
+    if(bound <= 0) throw new IllegalArgumentException("bound: " + bound);
+    return (int) (((nextLong() >>> 32) * bound) >>> 32);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The next random value between <code>0</code> inclusive and
+   *         <code>1</code> exclusive.
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The next random value between <code>0</code> and <code>1</code>
+   *         both exclusive.
+   */
+  private double nextOpenDouble() {
+    return ((nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The next gaussian random value with a mean of <code>0</code> and
+   *         a standard deviation of <code>1</code>.
+   */
+  public double nextGaussian() {
+    for(;;) {
+      final long bits = nextLong();
+      final int hz = (int) (bits >>> 32);
+      final int iz = (int) bits & (LAYERS - 1);
+      final double x = hz * WN[iz];
+      // the common case: inside the rectangle of the layer
+      if(Math.abs((long) hz) < KN[iz]) return x;
+      if(iz == 0) {
+        // the tail beyond R
+        double tx;
+        double ty;
+        do {
+          tx = -Math.log(nextOpenDouble()) / R;
+          ty = -Math.log(nextOpenDouble());
+        } while(ty + ty < tx * tx);
+        return hz > 0 ? R + tx : -R - tx;
+      }
+      // the wedge between the rectangle and the density
+      if(FN[iz] + nextDouble() * (FN[iz - 1] - FN[iz]) < Math.exp(-0.5 * x * x)) return x;
+    }
+  }
+
+}
@@ -21,7 +21,7 @@ public abstract class SimplePen extends PenAdapter {
   protected Color color;
 
   /** Whether the pen is already initialized. */
-  private boolean initialized;
+  private volatile boolean initialized;
 
   /**
    * Creates a simple pen with the given color.
@@ -45,15 +45,31 @@ public abstract class SimplePen extends PenAdapter {
   }
 
   /** The stroke used to draw. */
-  protected Stroke usedStroke;
+  protected volatile Stroke usedStroke;
 
-  @Override
-  public void prepare(final Graphics2D g, final Shape s) {
+  /**
+   * Initializes the pen by calling {@link #setColor(Color)} and
+   * {@link #setSegmentLength(double)} with the values of the constructor.
+   * This happens when the pen is prepared the first time. Pens that compute
+   * their bounding boxes from values set by those methods must call this
+   * method before since bounding boxes may be requested before drawing.
+   */
+  protected final void ensureInitialized() {
     if(!initialized) {
-      setColor(color);
-      setSegmentLength(segmentLength);
-      initialized = true;
+      // the pen may be initialized by multiple threads at once
+      synchronized(this) {
+        if(!initialized) {
+          setColor(color);
+          setSegmentLength(segmentLength);
+          initialized = true;
+        }
+      }
     }
+  }
+
+  @Override
+  public void prepare(final Graphics2D g, final Shape s) {
+    ensureInitialized();
     if(color != null) {
       g.setColor(color);
     }
@@ -70,6 +86,17 @@ public abstract class SimplePen extends PenAdapter {
     usedStroke = g.getStroke();
   }
 
+  /**
+   * {@inheritDoc} The bounding boxes of simple pens do not depend on the
+   * rotation. Subclasses whose bounding boxes do must override this method.
+   */
+  @Override
+  public double getMaxExtent() {
+    double res = getExtent(getBoundingBox(SEG_START, 0.0));
+    res = Math.max(res, getExtent(getBoundingBox(SEG_NORM, 0.0)));
+    return Math.max(res, getExtent(getBoundingBox(SEG_END, 0.0)));
+  }
+
   /** The standard stroke. */
   private static final BasicStroke BASE = new BasicStroke(1f);
 
@@ -84,9 +111,21 @@ public abstract class SimplePen extends PenAdapter {
         .createStrokedShape(s)).getBounds2D();
   }
 
+  /**
+   * {@inheritDoc} Setting the initial values when the pen is initialized is
+   * not a change since nothing has been drawn with the pen before.
+   */
+  @Override
+  protected void changed() {
+    if(initialized) {
+      super.changed();
+    }
+  }
+
   @Override
   public void setColor(final Color color) {
     this.color = color;
+    changed();
   }
 
   /**
@@ -105,6 +144,7 @@ public abstract class SimplePen extends PenAdapter {
    */
   public void setSegmentLength(final double segmentLength) {
     this.segmentLength = segmentLength;
+    changed();
   }
 
   @Override
@@ -7,9 +7,12 @@ import java.awt.geom.Rectangle2D;
 
 import jkit.gfx.AbstractShapeDrawer;
 import jkit.gfx.Drawable;
+import jkit.gfx.RenderMetrics;
 
 /**
- * A decorator pen for adding a snow effect.
+ * A decorator pen for adding a snow effect. The thickness of the snow depends
+ * on the slope of a segment. A single pen can be used by multiple threads at
+ * once since every thread draws with its own crayon.
  * 
  * @author Joschi <josua.krause@gmail.com>
  */
@@ -18,9 +21,18 @@ public class SnowPen extends DecoratorPen {
   /** The original shape drawer. */
   private final AbstractShapeDrawer origin;
 
-  /** The snow crayon. */
+  /**
+   * The snow crayon. It holds the configuration of the crayons of the
+   * threads and computes bounding boxes but is never drawn.
+   */
   private final CrayonPen crayon;
 
+  /** The crayons of the threads. */
+  private volatile ThreadLocal<CrayonPen> crayons = createCrayons();
+
+  /** The metrics or <code>null</code>. */
+  private volatile RenderMetrics metrics;
+
   /** The maximal slope. */
   private final double maxSlope;
 
@@ -104,6 +116,35 @@ public class SnowPen extends DecoratorPen {
    */
   public void setSegmentLength(final double segmentLength) {
     crayon.setSegmentLength(segmentLength);
+    crayons = createCrayons();
+  }
+
+  @Override
+  public void setMetrics(final RenderMetrics metrics) {
+    this.metrics = metrics;
+    crayon.setMetrics(metrics);
+    crayons = createCrayons();
+  }
+
+  /**
+   * Creates the crayons of the threads. The crayons are created with the
+   * current configuration when a thread draws the first time.
+   * 
+   * @return The crayons of the threads.
+   */
+  private ThreadLocal<CrayonPen> createCrayons() {
+    return new ThreadLocal<CrayonPen>() {
+
+      @Override
+      protected CrayonPen initialValue() {
+        final CrayonPen res = new CrayonPen(Color.WHITE,
+            crayon.getThickness(), crayon.getPressure());
+        res.setSegmentLength(crayon.segmentLength());
+        res.setMetrics(metrics);
+        return res;
+      }
+
+    };
   }
 
   /**
@@ -113,6 +154,7 @@ public class SnowPen extends DecoratorPen {
    */
   public void setThickness(final double thickness) {
     maxThickness = thickness;
+    changed();
   }
 
   /**
@@ -129,7 +171,7 @@ public class SnowPen extends DecoratorPen {
     final Drawable o = origin.getDrawable(s);
     o.draw(g);
     g.translate(0.0, -getThickness() * 2.0 / 3.0);
-    crayon.prepare(g, s);
+    crayons.get().prepare(g, s);
   }
 
   @Override
@@ -138,6 +180,16 @@ public class SnowPen extends DecoratorPen {
     return o.getBounds();
   }
 
+  /**
+   * {@inheritDoc} The conservative bounds of the decorated shape avoid its
+   * segmentation.
+   */
+  @Override
+  public Rectangle2D getConservativeSpecialBounds(final Shape s) {
+    final Drawable o = origin.getDrawable(s);
+    return o.getConservativeBounds();
+  }
+
   /** The standard maximal slope. */
   private static final double MAX_SLOPE = Math.PI * 0.5;
 
@@ -159,13 +211,27 @@ public class SnowPen extends DecoratorPen {
   }
 
   /**
-   * Adjusts the thickness for the given rotation.
+   * Adjusts the thickness of the crayon of the current thread for the given
+   * rotation.
    * 
    * @param rot The rotation.
+   * @return The crayon of the current thread.
    */
-  private void adjustThickness(final double rot) {
+  private CrayonPen adjustThickness(final double rot) {
+    final CrayonPen res = crayons.get();
+    res.setThickness(getThickness(rot));
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param rot The rotation.
+   * @return The thickness of the snow for the given rotation.
+   */
+  private double getThickness(final double rot) {
     final double factor = slope(rot) / MAX_SLOPE;
-    crayon.setThickness(maxThickness * factor);
+    return maxThickness * factor;
   }
 
   /**
@@ -181,36 +247,43 @@ public class SnowPen extends DecoratorPen {
   @Override
   public void start(final Graphics2D g, final int no, final double rotation) {
     if(isCorrectRotation(rotation)) {
-      adjustThickness(rotation);
-      super.start(g, no, rotation);
+      adjustThickness(rotation).start(g, no, rotation);
     }
   }
 
   @Override
   public void end(final Graphics2D g, final int no, final double rotation) {
     if(isCorrectRotation(rotation)) {
-      adjustThickness(rotation);
-      super.end(g, no, rotation);
+      adjustThickness(rotation).end(g, no, rotation);
     }
   }
 
   @Override
   public void draw(final Graphics2D g, final int no, final double rotation) {
     if(isCorrectRotation(rotation)) {
-      adjustThickness(rotation);
-      super.draw(g, no, rotation);
+      adjustThickness(rotation).draw(g, no, rotation);
     }
   }
 
   @Override
   public Rectangle2D getBoundingBox(final int type, final double rotation) {
-    if(isCorrectRotation(rotation)) {
-      adjustThickness(rotation);
-      return super.getBoundingBox(type, rotation);
-    }
+    // does not alter the crayon since bounding boxes may be computed in
+    // parallel
+    if(isCorrectRotation(rotation)) return crayon.getBoundingBoxFor(getThickness(rotation));
     return new Rectangle2D.Double();
   }
 
+  /**
+   * {@inheritDoc} The snow is at most as thick as the maximal thickness and is
+   * moved up by two thirds of it.
+   */
+  @Override
+  public double getMaxExtent() {
+    final double thickness = getThickness();
+    return PenAdapter.getExtent(crayon.getBoundingBoxFor(thickness))
+        + thickness * 2.0 / 3.0;
+  }
+
   @Override
   public void setColor(final Color color) {
     // TODO
@@ -0,0 +1,183 @@
+package jkit.gfx.pen;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+import jkit.gfx.ImagePool;
+
+/**
+ * A cached image of a pen segment. The sprite is either a whole image or a
+ * region of a {@link SpriteAtlas} page.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+final class Sprite {
+
+  /** The image holding the sprite. */
+  private final Image image;
+
+  /** The horizontal offset of the sprite within the image. */
+  private final int x;
+
+  /** The vertical offset of the sprite within the image. */
+  private final int y;
+
+  /** The width of the sprite. */
+  private final int width;
+
+  /** The height of the sprite. */
+  private final int height;
+
+  /** The atlas or <code>null</code> if the sprite is a whole image. */
+  private final SpriteAtlas atlas;
+
+  /** The generation of the atlas the sprite was allocated in. */
+  private final int generation;
+
+  /** The pool owning the image or <code>null</code>. */
+  private final ImagePool pool;
+
+  /** Whether the sprite covers the whole image. */
+  private final boolean whole;
+
+  /**
+   * Creates a sprite.
+   * 
+   * @param image The image holding the sprite.
+   * @param x The horizontal offset within the image.
+   * @param y The vertical offset within the image.
+   * @param width The width.
+   * @param height The height.
+   * @param atlas The atlas or <code>null</code> if the sprite is not part of
+   *          an atlas.
+   * @param generation The generation of the atlas.
+   */
+  public Sprite(final Image image, final int x, final int y,
+      final int width, final int height, final SpriteAtlas atlas,
+      final int generation) {
+    this(image, x, y, width, height, atlas, generation, null);
+  }
+
+  /**
+   * Creates a sprite.
+   * 
+   * @param image The image holding the sprite.
+   * @param x The horizontal offset within the image.
+   * @param y The vertical offset within the image.
+   * @param width The width.
+   * @param height The height.
+   * @param atlas The atlas or <code>null</code> if the sprite is not part of
+   *          an atlas.
+   * @param generation The generation of the atlas.
+   * @param pool The pool owning the image or <code>null</code>.
+   */
+  private Sprite(final Image image, final int x, final int y,
+      final int width, final int height, final SpriteAtlas atlas,
+      final int generation, final ImagePool pool) {
+    this.image = image;
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.atlas = atlas;
+    this.generation = generation;
+    this.pool = pool;
+    // pooled images may be larger than the sprite
+    whole = atlas == null && (pool == null
+        || image.getWidth(null) == width && image.getHeight(null) == height);
+  }
+
+  /**
+   * Creates a sprite in the top left corner of a pooled image. The image is
+   * returned to the pool when the sprite is released.
+   * 
+   * @param image The image obtained from the pool.
+   * @param width The width of the sprite.
+   * @param height The height of the sprite.
+   * @param pool The pool.
+   */
+  public Sprite(final BufferedImage image, final int width, final int height,
+      final ImagePool pool) {
+    this(image, 0, 0, width, height, null, 0, pool);
+  }
+
+  /**
+   * Creates a sprite from a whole image.
+   * 
+   * @param image The image.
+   * @param width The width of the image.
+   * @param height The height of the image.
+   */
+  public Sprite(final Image image, final int width, final int height) {
+    this(image, 0, 0, width, height, null, 0);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the sprite can still be used. Sprites of an atlas become
+   *         invalid when the atlas is cleared.
+   */
+  public boolean isValid() {
+    return atlas == null || atlas.getGeneration() == generation;
+  }
+
+  /**
+   * Creates a graphics context to render the sprite. The origin of the context
+   * is the top left corner of the sprite and drawing is clipped to the sprite.
+   * 
+   * @return The graphics context.
+   */
+  public Graphics2D createGraphics() {
+    final Graphics2D g = ((BufferedImage) image).createGraphics();
+    g.clipRect(x, y, width, height);
+    g.translate(x, y);
+    return g;
+  }
+
+  /**
+   * Returns the image to its pool if it has one. The sprite must not be used
+   * afterwards.
+   */
+  public void release() {
+    if(pool != null) {
+      pool.release((BufferedImage) image);
+    }
+  }
+
+  /**
+   * Replaces the pixels of the sprite.
+   * 
+   * @param argb The non-premultiplied ARGB values in rows.
+   */
+  public void setRGB(final int[] argb) {
+    ((BufferedImage) image).setRGB(x, y, width, height, argb, 0, width);
+  }
+
+  /**
+   * Draws the sprite with its top left corner at the origin.
+   * 
+   * @param g The graphics context.
+   */
+  public void draw(final Graphics2D g) {
+    draw(g, 0, 0);
+  }
+
+  /**
+   * Draws the sprite with its top left corner at the given position.
+   * 
+   * @param g The graphics context.
+   * @param px The horizontal position.
+   * @param py The vertical position.
+   */
+  public void draw(final Graphics2D g, final int px, final int py) {
+    if(whole) {
+      g.drawImage(image, px, py, null);
+    } else {
+      g.drawImage(image, px, py, px + width, py + height,
+          x, y, x + width, y + height, null);
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+package jkit.gfx.pen;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A texture atlas packing the cached segment images of
+ * {@link CachedRandomPen}s into one shared image. The atlas can be used by one
+ * or by several pens. Sprites are packed into rows. When the atlas is full it
+ * is cleared and all pens using it render their sprites again.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class SpriteAtlas {
+
+  /** The default width and height of the atlas. */
+  public static final int DEFAULT_SIZE = 1024;
+
+  /** The space between sprites to avoid bleeding. */
+  private static final int PADDING = 1;
+
+  /** The width of the atlas image. */
+  private final int width;
+
+  /** The height of the atlas image. */
+  private final int height;
+
+  /** The current atlas image or <code>null</code> if none is allocated. */
+  private BufferedImage page;
+
+  /** The generation of the atlas. */
+  private volatile int generation;
+
+  /** The horizontal position in the current row. */
+  private int rowX;
+
+  /** The vertical position of the current row. */
+  private int rowY;
+
+  /** The height of the current row. */
+  private int rowHeight;
+
+  /** Creates an atlas with the default size. */
+  public SpriteAtlas() {
+    this(DEFAULT_SIZE, DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates an atlas.
+   * 
+   * @param width The width of the atlas image.
+   * @param height The height of the atlas image.
+   */
+  public SpriteAtlas(final int width, final int height) {
+    if(width <= 0) throw new IllegalArgumentException("width: " + width);
+    if(height <= 0) throw new IllegalArgumentException("height: " + height);
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Allocates a sprite. When the atlas is full it gets cleared first.
+   * 
+   * @param w The width of the sprite.
+   * @param h The height of the sprite.
+   * @return The sprite or <code>null</code> if the sprite is too large for the
+   *         atlas.
+   */
+  synchronized Sprite allocate(final int w, final int h) {
+    if(w + PADDING > width || h + PADDING > height) return null;
+    if(page == null) {
+      page = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+    if(rowX + w + PADDING > width) {
+      // start a new row
+      rowX = 0;
+      rowY += rowHeight;
+      rowHeight = 0;
+    }
+    if(rowY + h + PADDING > height) {
+      clear();
+      page = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+    final Sprite res = new Sprite(page, rowX, rowY, w, h, this, generation);
+    rowX += w + PADDING;
+    rowHeight = Math.max(rowHeight, h + PADDING);
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The generation of the atlas. The generation changes when the
+   *         atlas is cleared.
+   */
+  int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Clears the atlas. All sprites of the atlas become invalid. The atlas image
+   * is not reused in order to not alter sprites that are currently drawn.
+   */
+  public synchronized void clear() {
+    page = null;
+    rowX = 0;
+    rowY = 0;
+    rowHeight = 0;
+    ++generation;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The width of the atlas image.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The height of the atlas image.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+}
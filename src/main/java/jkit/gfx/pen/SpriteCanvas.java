@@ -0,0 +1,141 @@
+package jkit.gfx.pen;
+
+import java.awt.Color;
+
+/**
+ * Pixels of a sprite that pens can write to directly instead of going through
+ * a graphics context. Shapes are blended with the color of the pen using their
+ * exact pixel coverage as alpha, which looks like anti-aliased drawing. The
+ * pixels start out transparent.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public final class SpriteCanvas {
+
+  /** The width in pixels. */
+  private final int width;
+
+  /** The height in pixels. */
+  private final int height;
+
+  /** The horizontal translation from segment space into the pixels. */
+  private final double tx;
+
+  /** The vertical translation from segment space into the pixels. */
+  private final double ty;
+
+  /** The alpha of the color. */
+  private final float alpha;
+
+  /** The premultiplied red of the color. */
+  private final float red;
+
+  /** The premultiplied green of the color. */
+  private final float green;
+
+  /** The premultiplied blue of the color. */
+  private final float blue;
+
+  /** The premultiplied alpha, red, green, and blue values of the pixels. */
+  private final float[] pixels;
+
+  /**
+   * Creates a transparent canvas.
+   * 
+   * @param width The width in pixels.
+   * @param height The height in pixels.
+   * @param tx The horizontal translation from segment space into the pixels.
+   * @param ty The vertical translation from segment space into the pixels.
+   * @param color The color of the pen.
+   */
+  SpriteCanvas(final int width, final int height, final double tx,
+      final double ty, final Color color) {
+    this.width = width;
+    this.height = height;
+    this.tx = tx;
+    this.ty = ty;
+    alpha = color.getAlpha() / 255f;
+    red = color.getRed() / 255f * alpha;
+    green = color.getGreen() / 255f * alpha;
+    blue = color.getBlue() / 255f * alpha;
+    pixels = new float[width * height * 4];
+  }
+
+  /**
+   * Fills an axis aligned rectangle in segment space with the color of the
+   * pen.
+   * 
+   * @param x The left coordinate.
+   * @param y The top coordinate.
+   * @param w The width.
+   * @param h The height.
+   */
+  public void fillRect(final double x, final double y,
+      final double w, final double h) {
+    final double x0 = x + tx;
+    final double y0 = y + ty;
+    final double x1 = x0 + w;
+    final double y1 = y0 + h;
+    final int minX = Math.max((int) Math.floor(x0), 0);
+    final int maxX = Math.min((int) Math.ceil(x1), width);
+    final int minY = Math.max((int) Math.floor(y0), 0);
+    final int maxY = Math.min((int) Math.ceil(y1), height);
+    for(int py = minY; py < maxY; ++py) {
+      final double covY = Math.min(py + 1, y1) - Math.max(py, y0);
+      if(covY <= 0.0) {
+        continue;
+      }
+      for(int px = minX; px < maxX; ++px) {
+        final double covX = Math.min(px + 1, x1) - Math.max(px, x0);
+        if(covX <= 0.0) {
+          continue;
+        }
+        blend((py * width + px) * 4, (float) (covX * covY));
+      }
+    }
+  }
+
+  /**
+   * Blends the color of the pen onto a pixel.
+   * 
+   * @param pos The position of the pixel in the array.
+   * @param coverage The fraction of the pixel that is covered.
+   */
+  private void blend(final int pos, final float coverage) {
+    final float inv = 1f - alpha * coverage;
+    pixels[pos] = alpha * coverage + pixels[pos] * inv;
+    pixels[pos + 1] = red * coverage + pixels[pos + 1] * inv;
+    pixels[pos + 2] = green * coverage + pixels[pos + 2] * inv;
+    pixels[pos + 3] = blue * coverage + pixels[pos + 3] * inv;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The pixels as non-premultiplied ARGB values in rows.
+   */
+  int[] getRGB() {
+    final int[] res = new int[width * height];
+    for(int i = 0; i < res.length; ++i) {
+      final int pos = i * 4;
+      final float a = pixels[pos];
+      if(a <= 0f) {
+        continue;
+      }
+      res[i] = toByte(a) << 24 | toByte(pixels[pos + 1] / a) << 16
+          | toByte(pixels[pos + 2] / a) << 8 | toByte(pixels[pos + 3] / a);
+    }
+    return res;
+  }
+
+  /**
+   * Converts a channel value.
+   * 
+   * @param v The value between <code>0</code> and <code>1</code>.
+   * @return The value between <code>0</code> and <code>255</code>.
+   */
+  private static int toByte(final float v) {
+    return Math.min(Math.max(Math.round(v * 255f), 0), 255);
+  }
+
+}
@@ -0,0 +1,219 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import jkit.gfx.pen.LinePen;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CachedDrawable} and the {@link RasterCache}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class CachedDrawableTest {
+
+  /**
+   * A drawable filling a box that counts how often it is drawn.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class CountingDrawable extends Drawable {
+
+    /** The box. */
+    private final Rectangle2D box;
+
+    /** The number of draws. */
+    int draws;
+
+    /** The version. */
+    long version;
+
+    /**
+     * Creates a drawable.
+     * 
+     * @param size The size of the box.
+     */
+    public CountingDrawable(final double size) {
+      box = new Rectangle2D.Double(0, 0, size, size);
+    }
+
+    @Override
+    public void draw(final Graphics2D gfx) {
+      ++draws;
+      gfx.setColor(Color.BLACK);
+      gfx.fill(box);
+    }
+
+    @Override
+    public long getVersion() {
+      return version;
+    }
+
+    @Override
+    protected Rectangle2D computeBounds() {
+      return box.getBounds2D();
+    }
+
+  }
+
+  /**
+   * Draws a drawable onto a new image.
+   * 
+   * @param d The drawable.
+   * @param tx The horizontal translation.
+   * @param ty The vertical translation.
+   * @param scale The scaling.
+   * @param rotation The rotation.
+   * @return The image.
+   */
+  private static BufferedImage draw(final Drawable d, final double tx,
+      final double ty, final double scale, final double rotation) {
+    final BufferedImage img = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.translate(tx, ty);
+    g.scale(scale, scale);
+    g.rotate(rotation);
+    d.draw(g);
+    g.dispose();
+    return img;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param img The image.
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The alpha of the pixel.
+   */
+  private static int alpha(final BufferedImage img, final int x, final int y) {
+    return img.getRGB(x, y) >>> 24;
+  }
+
+  /** Tests that the image is drawn again when the linear transform changes. */
+  @Test
+  public void linearChange() {
+    final RasterCache cache = new RasterCache(RasterCache.DEFAULT_BUDGET);
+    final CountingDrawable d = new CountingDrawable(10);
+    final CachedDrawable cd = new CachedDrawable(d, cache);
+    draw(cd, 0, 0, 1, 0);
+    draw(cd, 0, 0, 1, 0);
+    assertEquals(1, d.draws);
+    assertEquals(1, cache.size());
+    draw(cd, 0, 0, 2, 0);
+    assertEquals(2, d.draws);
+    draw(cd, 0, 0, 2, 0);
+    assertEquals(2, d.draws);
+    draw(cd, 20, 20, 2, Math.PI * 0.25);
+    assertEquals(3, d.draws);
+    // the image of the drawable is replaced
+    assertEquals(1, cache.size());
+  }
+
+  /** Tests that a pure translation reuses the image. */
+  @Test
+  public void translation() {
+    final RasterCache cache = new RasterCache(RasterCache.DEFAULT_BUDGET);
+    final CountingDrawable d = new CountingDrawable(10);
+    final CachedDrawable cd = new CachedDrawable(d, cache);
+    draw(cd, 0, 0, 1, 0);
+    final BufferedImage img = draw(cd, 20.4, 30, 1, 0);
+    assertEquals(1, d.draws);
+    // the image is moved to the closest pixel
+    assertEquals(255, alpha(img, 20, 30));
+    assertEquals(255, alpha(img, 29, 39));
+    assertEquals(0, alpha(img, 5, 5));
+    assertEquals(0, alpha(img, 31, 41));
+  }
+
+  /** Tests that the least recently drawn images are evicted. */
+  @Test
+  public void eviction() {
+    // one 12 by 12 pixel image fits
+    final RasterCache cache = new RasterCache(1000);
+    final CountingDrawable a = new CountingDrawable(10);
+    final CountingDrawable b = new CountingDrawable(10);
+    final CachedDrawable ca = new CachedDrawable(a, cache);
+    final CachedDrawable cb = new CachedDrawable(b, cache);
+    draw(ca, 0, 0, 1, 0);
+    assertEquals(1, cache.size());
+    assertEquals(12 * 12 * 4, cache.getUsage());
+    draw(cb, 0, 0, 1, 0);
+    assertEquals(1, cache.size());
+    assertEquals(12 * 12 * 4, cache.getUsage());
+    draw(cb, 0, 0, 1, 0);
+    assertEquals(1, b.draws);
+    draw(ca, 0, 0, 1, 0);
+    assertEquals(2, a.draws);
+    // images larger than the budget are never kept
+    final CountingDrawable large = new CountingDrawable(20);
+    final CachedDrawable cl = new CachedDrawable(large, cache);
+    draw(cl, 0, 0, 1, 0);
+    draw(cl, 0, 0, 1, 0);
+    assertEquals(2, large.draws);
+    assertEquals(1, cache.size());
+    // shrinking the budget evicts immediately
+    cache.setBudget(100);
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getUsage());
+    draw(ca, 0, 0, 1, 0);
+    assertEquals(3, a.draws);
+  }
+
+  /** Tests that invalidating discards the image. */
+  @Test
+  public void invalidate() {
+    final RasterCache cache = new RasterCache(RasterCache.DEFAULT_BUDGET);
+    final CountingDrawable d = new CountingDrawable(10);
+    final CachedDrawable cd = new CachedDrawable(d, cache);
+    draw(cd, 0, 0, 1, 0);
+    cd.invalidate();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getUsage());
+    draw(cd, 0, 0, 1, 0);
+    draw(cd, 0, 0, 1, 0);
+    assertEquals(2, d.draws);
+    assertEquals(1, cache.size());
+  }
+
+  /** Tests that a new version of the drawable discards the image. */
+  @Test
+  public void version() {
+    final RasterCache cache = new RasterCache(RasterCache.DEFAULT_BUDGET);
+    final CountingDrawable d = new CountingDrawable(10);
+    final CachedDrawable cd = new CachedDrawable(d, cache);
+    draw(cd, 0, 0, 1, 0);
+    ++d.version;
+    draw(cd, 0, 0, 1, 0);
+    draw(cd, 0, 0, 1, 0);
+    assertEquals(2, d.draws);
+    assertEquals(d.version, cd.getVersion());
+  }
+
+  /** Tests that changing the pen of a drawable discards the image. */
+  @Test
+  public void penChange() {
+    final RasterCache cache = new RasterCache(RasterCache.DEFAULT_BUDGET);
+    final LinePen pen = new LinePen(new BasicStroke(4f), Color.BLACK);
+    final Drawable d = new PenShapeDrawer(pen).getDrawable(
+        new Line2D.Double(5, 10, 45, 10));
+    final CachedDrawable cd = new CachedDrawable(d, cache);
+    assertEquals(0xff000000, draw(cd, 0, 0, 1, 0).getRGB(25, 10));
+    // initializing the pen when drawing is not a change
+    final long version = d.getVersion();
+    draw(cd, 0, 0, 1, 0);
+    assertEquals(version, d.getVersion());
+    pen.setColor(Color.RED);
+    assertTrue(version != d.getVersion());
+    assertEquals(0xffff0000, draw(cd, 0, 0, 1, 0).getRGB(25, 10));
+  }
+
+}
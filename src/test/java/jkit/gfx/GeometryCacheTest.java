@@ -0,0 +1,91 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GeometryCache}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class GeometryCacheTest {
+
+  /**
+   * Draws a shape.
+   * 
+   * @param drawer The drawer.
+   * @param shape The shape.
+   */
+  private static void draw(final PenShapeDrawer drawer, final Shape shape) {
+    final BufferedImage img = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    drawer.getDrawable(shape).draw(g);
+    g.dispose();
+  }
+
+  /** Tests that a shape is flattened once per flatness. */
+  @Test
+  public void sharing() {
+    final GeometryCache cache = new GeometryCache(8);
+    final Shape shape = new Ellipse2D.Double(0, 0, 100, 50);
+    final SegmentBuffer a = cache.get(shape, 1.0);
+    assertSame(a, cache.get(shape, 1.0));
+    final SegmentBuffer b = cache.get(shape, 2.0);
+    assertNotSame(a, b);
+    assertEquals(2, cache.size());
+    // equal shapes are different keys
+    assertNotSame(a, cache.get(new Ellipse2D.Double(0, 0, 100, 50), 1.0));
+    assertEquals(3, cache.size());
+  }
+
+  /** Tests that drawers only share geometry when enabled. */
+  @Test
+  public void drawers() {
+    final GeometryCache cache = GeometryCache.getDefault();
+    cache.clear();
+    final Shape shape = new Ellipse2D.Double(0, 0, 100, 50);
+    final PenShapeDrawer first = new PenShapeDrawer(new RecordingPen(10.0));
+    final PenShapeDrawer second = new PenShapeDrawer(new RecordingPen(10.0));
+    final PenShapeDrawer other = new PenShapeDrawer(new RecordingPen(20.0));
+    draw(first, shape);
+    assertEquals(0, cache.size());
+    first.setShareGeometry(true);
+    second.setShareGeometry(true);
+    other.setShareGeometry(true);
+    assertFalse(new PenShapeDrawer(new RecordingPen(10.0)).isShareGeometry());
+    draw(first, shape);
+    draw(second, shape);
+    // the same shape and flatness share one flattening
+    assertEquals(1, cache.size());
+    // another segment length uses another flatness
+    draw(other, shape);
+    assertEquals(2, cache.size());
+    cache.invalidate(shape);
+    assertEquals(0, cache.size());
+  }
+
+  /** Tests that the least recently used geometry is evicted. */
+  @Test
+  public void eviction() {
+    final GeometryCache cache = new GeometryCache(2);
+    final Shape a = new Ellipse2D.Double(0, 0, 10, 10);
+    final Shape b = new Ellipse2D.Double(0, 0, 20, 20);
+    final Shape c = new Ellipse2D.Double(0, 0, 30, 30);
+    final SegmentBuffer sa = cache.get(a, 1.0);
+    final SegmentBuffer sb = cache.get(b, 1.0);
+    // a is used more recently than b
+    assertSame(sa, cache.get(a, 1.0));
+    cache.get(c, 1.0);
+    assertEquals(2, cache.size());
+    assertSame(sa, cache.get(a, 1.0));
+    // b was evicted
+    assertNotSame(sb, cache.get(b, 1.0));
+  }
+
+}
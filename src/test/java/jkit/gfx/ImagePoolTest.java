@@ -0,0 +1,101 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+import jkit.gfx.pen.CrayonPen;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ImagePool}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class ImagePoolTest {
+
+  /** Tests that sizes are rounded to buckets and images are reused. */
+  @Test
+  public void buckets() {
+    final ImagePool pool = new ImagePool(4, 8);
+    final BufferedImage a = pool.acquire(10, 3);
+    assertEquals(16, a.getWidth());
+    assertEquals(8, a.getHeight());
+    pool.release(a);
+    assertEquals(1, pool.size());
+    assertEquals(1, pool.getBucketCount());
+    // a different bucket creates a new image
+    final BufferedImage b = pool.acquire(17, 3);
+    assertNotSame(a, b);
+    assertEquals(24, b.getWidth());
+    // the same bucket reuses the image
+    assertSame(a, pool.acquire(13, 8));
+    assertEquals(0, pool.size());
+    assertEquals(0, pool.getBucketCount());
+    assertEquals(3, pool.getAcquireCount());
+    assertEquals(1, pool.getReuseCount());
+  }
+
+  /** Tests that released images are discarded when the pool is full. */
+  @Test
+  public void eviction() {
+    final ImagePool pool = new ImagePool(2);
+    final BufferedImage a = pool.acquire(5, 5);
+    final BufferedImage b = pool.acquire(5, 5);
+    final BufferedImage c = pool.acquire(6, 6);
+    pool.release(a);
+    pool.release(b);
+    pool.release(c);
+    assertEquals(2, pool.size());
+    assertEquals(3, pool.getReleaseCount());
+    assertEquals(1, pool.getDiscardCount());
+    assertEquals(1, pool.getBucketCount());
+    assertNotSame(c, pool.acquire(6, 6));
+    pool.clear();
+    assertEquals(0, pool.size());
+    assertEquals(0, pool.getBucketCount());
+    assertNotSame(a, pool.acquire(5, 5));
+  }
+
+  /** Tests that hits and misses of the pool are reported to metrics. */
+  @Test
+  public void metrics() {
+    final ImagePool pool = new ImagePool(2);
+    final RenderMetrics m = new RenderMetrics();
+    pool.release(pool.acquire(3, 3, m));
+    pool.acquire(3, 3, m);
+    pool.acquire(3, 3, null);
+    assertEquals(1, m.getPoolHits());
+    assertEquals(1, m.getPoolMisses());
+  }
+
+  /** Tests that a cached pen reuses images after its cache is invalidated. */
+  @Test
+  public void penReusesImages() {
+    final ImagePool pool = new ImagePool(64, 8);
+    final CrayonPen pen = new CrayonPen(Color.BLACK, 5.0);
+    pen.setImagePool(pool);
+    final PenShapeDrawer drawer = new PenShapeDrawer(pen);
+    final RenderMetrics m = new RenderMetrics();
+    drawer.setMetrics(m);
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(200, 0);
+    path.lineTo(200, 200);
+    final BufferedImage img = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    drawer.getDrawable(path).draw(g);
+    assertEquals(0, m.getPoolHits());
+    assertTrue(m.getPoolMisses() > 0);
+    m.reset();
+    pen.setPressure(3.0);
+    drawer.getDrawable(path).draw(g);
+    g.dispose();
+    assertTrue(m.getPoolHits() > 0);
+  }
+
+}
@@ -0,0 +1,316 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import jkit.gfx.pen.ArrowPen;
+import jkit.gfx.pen.BloodTrailPen;
+import jkit.gfx.pen.CirclePen;
+import jkit.gfx.pen.LinePen;
+import jkit.gfx.pen.Pen;
+import jkit.gfx.pen.PenAdapter;
+import jkit.gfx.pen.PencilPen;
+import jkit.gfx.pen.SnowPen;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PenShapeDrawer}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class PenShapeDrawerTest {
+
+  /** The size of the images. */
+  private static final int SIZE = 256;
+
+  /**
+   * Creates a large shape that is drawn zoomed out.
+   * 
+   * @return The shape.
+   */
+  private static Shape createLargeShape() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(100, 3000);
+    path.lineTo(1500, 500);
+    path.quadTo(2500, 100, 4000, 1500);
+    path.lineTo(800, 4500);
+    path.closePath();
+    return path;
+  }
+
+  /**
+   * Draws a shape.
+   * 
+   * @param drawer The drawer.
+   * @param shape The shape.
+   * @param scale The scaling.
+   * @return The image.
+   */
+  private static BufferedImage draw(final PenShapeDrawer drawer, final Shape shape,
+      final double scale) {
+    final BufferedImage img = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.scale(scale, scale);
+    drawer.getDrawable(shape).draw(g);
+    g.dispose();
+    return img;
+  }
+
+  /**
+   * Computes the coverage of an image.
+   * 
+   * @param img The image.
+   * @return The sum of all alpha values.
+   */
+  private static long coverage(final BufferedImage img) {
+    long res = 0;
+    for(int y = 0; y < img.getHeight(); ++y) {
+      for(int x = 0; x < img.getWidth(); ++x) {
+        res += img.getRGB(x, y) >>> 24;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Draws a shape with and without level-of-detail.
+   * 
+   * @param pen The pen.
+   * @param scale The scaling.
+   * @return The full and the level-of-detail image.
+   */
+  private static BufferedImage[] drawLod(final Pen pen, final double scale) {
+    final Shape shape = createLargeShape();
+    final PenShapeDrawer full = new PenShapeDrawer(pen);
+    full.setLodThreshold(0.0);
+    final PenShapeDrawer lod = new PenShapeDrawer(pen);
+    lod.setLodThreshold(1.0);
+    return new BufferedImage[] { draw(full, shape, scale), draw(lod, shape, scale)};
+  }
+
+  /** Tests that the level-of-detail is disabled by default. */
+  @Test
+  public void lodIsOptIn() {
+    assertEquals(0.0, new PenShapeDrawer(new LinePen()).getLodThreshold(), 0.0);
+  }
+
+  /**
+   * Tests that pens drawing far from the line are not replaced by an outline
+   * when they still cover several pixels.
+   */
+  @Test
+  public void lodKeepsWidePens() {
+    for(final Pen pen : new Pen[] { new BloodTrailPen(), new PencilPen(), new ArrowPen()}) {
+      final BufferedImage[] imgs = drawLod(pen, 0.05);
+      TiledRendererTest.assertImageEquals(pen.getClass().getSimpleName(),
+          imgs[0], imgs[1]);
+    }
+  }
+
+  /**
+   * Tests that the outline drawn instead of tiny pen-steps covers about as
+   * many pixels as the pen.
+   */
+  @Test
+  public void lodCoverage() {
+    for(final Pen pen : new Pen[] { new LinePen(), new CirclePen()}) {
+      final BufferedImage[] imgs = drawLod(pen, 0.02);
+      final long full = coverage(imgs[0]);
+      final long lod = coverage(imgs[1]);
+      final String name = pen.getClass().getSimpleName();
+      assertTrue(name + ": " + full + " " + lod, lod * 2 >= full && lod <= full * 2);
+    }
+  }
+
+  /**
+   * Draws a drawable onto an image.
+   * 
+   * @param d The drawable.
+   */
+  private static void draw(final Drawable d) {
+    final BufferedImage img = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    d.draw(g);
+    g.dispose();
+  }
+
+  /**
+   * Tests that an appendable drawable started with a line draws the same
+   * pen-steps as the equivalent shape, including the start of the line.
+   */
+  @Test
+  public void appendableStartsWithLine() {
+    final RecordingPen pen = new RecordingPen(10.0);
+    final PenShapeDrawer drawer = new PenShapeDrawer(pen);
+    final AppendableDrawable app = drawer.getAppendableDrawable(new Path2D.Double());
+    app.lineTo(0, 0);
+    app.lineTo(30, 0);
+    app.lineTo(30, 30);
+    draw(app);
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(30, 0);
+    path.lineTo(30, 30);
+    final RecordingPen ref = new RecordingPen(10.0);
+    draw(new PenShapeDrawer(ref).getDrawable(path));
+    assertEquals(ref.getSteps(), pen.getSteps());
+    assertEquals(Arrays.asList("start:0", "draw:1", "draw:2", "draw:3", "draw:4", "end:5"),
+        pen.getSteps());
+  }
+
+  /**
+   * Tests that the conservative bounds of a pen decorating a pen drawn shape
+   * do not segment the decorated shape.
+   */
+  @Test
+  public void conservativeSpecialBoundsAreLazy() {
+    final RenderMetrics metrics = new RenderMetrics();
+    final PenShapeDrawer origin = new PenShapeDrawer(new PencilPen());
+    origin.setMetrics(metrics);
+    final PenShapeDrawer snow = new PenShapeDrawer(new SnowPen(origin, 5.0, 2.0, 45, true));
+    snow.setMetrics(metrics);
+    final Drawable d = snow.getDrawable(createLargeShape());
+    final Rectangle2D conservative = d.getConservativeBounds();
+    assertEquals(0, metrics.getSegmentsCreated());
+    assertTrue(conservative.contains(d.getBounds()));
+    assertTrue(metrics.getSegmentsCreated() > 0);
+  }
+
+  /**
+   * A pen filling a box on one side of the line.
+   * 
+   * @author Joschi <josua.krause@gmail.com>
+   */
+  private static final class SidePen extends PenAdapter {
+
+    /** The box of a pen-step. */
+    private final Rectangle2D box = new Rectangle2D.Double(0, 0, 10, 60);
+
+    @Override
+    public void prepare(final Graphics2D g, final Shape s) {
+      // nothing to prepare
+    }
+
+    @Override
+    public void draw(final Graphics2D g, final int no, final double rotation) {
+      g.fill(box);
+    }
+
+    @Override
+    public Rectangle2D getBoundingBox(final int type, final double rotation) {
+      return box.getBounds2D();
+    }
+
+    @Override
+    public double getMaxExtent() {
+      return getExtent(box);
+    }
+
+    @Override
+    public double segmentLength() {
+      return box.getWidth();
+    }
+
+    @Override
+    public void setColor(final Color color) {
+      // always black
+    }
+
+  }
+
+  /**
+   * Tests that coarser flattenings and simplifications drawn for small device
+   * scales stay within the exact bounding box.
+   */
+  @Test
+  public void deviceFlatteningWithinBounds() {
+    // the pen-steps lie on the inner side of the curves
+    final Path2D shape = new Path2D.Double();
+    shape.moveTo(0, 0);
+    shape.quadTo(1000, 800, 2000, 0);
+    final Path2D track = new Path2D.Double();
+    track.moveTo(0, 0);
+    for(int i = 1; i <= 400; ++i) {
+      // a noisy track
+      track.lineTo(i * 5, Math.sqrt(i) * 40 + (i % 2 == 0 ? 3 : -3));
+    }
+    for(final Shape s : new Shape[] { shape, track}) {
+      final PenShapeDrawer drawer = new PenShapeDrawer(new SidePen());
+      drawer.setDeviceFlatness(8.0);
+      drawer.setSimplifyTolerance(4.0);
+      final Drawable d = drawer.getDrawable(s);
+      final Rectangle2D bounds = d.getBounds();
+      for(final double scale : new double[] { 0.05, 0.1, 0.3, 0.6, 1.0}) {
+        final AffineTransform at = AffineTransform.getTranslateInstance(20, 20);
+        at.scale(scale, scale);
+        at.translate(-bounds.getMinX(), -bounds.getMinY());
+        final Rectangle2D dev = at.createTransformedShape(bounds).getBounds2D();
+        final BufferedImage img = new BufferedImage((int) Math.ceil(dev.getMaxX()) + 20,
+            (int) Math.ceil(dev.getMaxY()) + 20, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = img.createGraphics();
+        g.setTransform(at);
+        d.draw(g);
+        g.dispose();
+        // a pixel touching the bounds may be partially covered
+        final Rectangle2D inside = new Rectangle2D.Double(dev.getX() - 1, dev.getY() - 1,
+            dev.getWidth() + 2, dev.getHeight() + 2);
+        for(int y = 0; y < img.getHeight(); ++y) {
+          for(int x = 0; x < img.getWidth(); ++x) {
+            if((img.getRGB(x, y) >>> 24) == 0) {
+              continue;
+            }
+            assertTrue(scale + ": " + x + " " + y + " " + dev,
+                inside.contains(x + 0.5, y + 0.5));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that bounding boxes computed in parallel equal the sequentially
+   * computed ones.
+   */
+  @Test
+  public void parallelBounds() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    final int n = PenShapeDrawer.DEFAULT_PARALLEL_BOUNDS_THRESHOLD * 3 + 17;
+    for(int i = 1; i <= n; ++i) {
+      // a spiral with one segment per vertex
+      final double r = 10 + i * 0.05;
+      path.lineTo(Math.cos(i * 0.01) * r, Math.sin(i * 0.01) * r);
+    }
+    for(final Pen pen : new Pen[] { new PencilPen(), new BloodTrailPen(), new ArrowPen()}) {
+      final PenShapeDrawer parallel = new PenShapeDrawer(pen);
+      final PenShapeDrawer sequential = new PenShapeDrawer(pen);
+      sequential.setParallelBoundsThreshold(Integer.MAX_VALUE);
+      final Drawable p = parallel.getDrawable(path);
+      final Drawable s = sequential.getDrawable(path);
+      final String name = pen.getClass().getSimpleName();
+      assertEquals(name, s.getBounds(), p.getBounds());
+      // the segment boxes are used for culling
+      final BufferedImage[] imgs = new BufferedImage[2];
+      for(int k = 0; k < imgs.length; ++k) {
+        imgs[k] = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = imgs[k].createGraphics();
+        g.clipRect(SIZE / 4, SIZE / 4, SIZE / 2, SIZE / 2);
+        g.translate(SIZE / 2, SIZE / 2);
+        g.scale(0.2, 0.2);
+        (k == 0 ? s : p).draw(g);
+        g.dispose();
+      }
+      TiledRendererTest.assertImageEquals(name, imgs[0], imgs[1]);
+    }
+  }
+
+}
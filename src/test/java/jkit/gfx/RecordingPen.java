@@ -0,0 +1,104 @@
+package jkit.gfx;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import jkit.gfx.pen.PenAdapter;
+
+/**
+ * A pen that records the pen-steps it is asked to draw.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RecordingPen extends PenAdapter {
+
+  /** The segment length. */
+  private final double segmentLength;
+
+  /** The recorded pen-steps. */
+  private final List<String> steps = new ArrayList<>();
+
+  /**
+   * Creates a recording pen.
+   * 
+   * @param segmentLength The segment length.
+   */
+  public RecordingPen(final double segmentLength) {
+    this.segmentLength = segmentLength;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The recorded pen-steps as <code>type:no</code>.
+   */
+  public synchronized List<String> getSteps() {
+    return new ArrayList<>(steps);
+  }
+
+  /** Forgets all recorded pen-steps. */
+  public synchronized void clear() {
+    steps.clear();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param type The type of the steps.
+   * @return The number of recorded pen-steps of the given type.
+   */
+  public synchronized int count(final String type) {
+    int res = 0;
+    for(final String s : steps) {
+      if(s.startsWith(type + ":")) {
+        ++res;
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public void prepare(final Graphics2D g, final Shape s) {
+    // nothing to prepare
+  }
+
+  @Override
+  public synchronized void start(final Graphics2D g, final int no, final double rotation) {
+    steps.add("start:" + no);
+  }
+
+  @Override
+  public synchronized void draw(final Graphics2D g, final int no, final double rotation) {
+    steps.add("draw:" + no);
+  }
+
+  @Override
+  public synchronized void end(final Graphics2D g, final int no, final double rotation) {
+    steps.add("end:" + no);
+  }
+
+  @Override
+  public Rectangle2D getBoundingBox(final int type, final double rotation) {
+    return new Rectangle2D.Double(0, -1, segmentLength, 2);
+  }
+
+  @Override
+  public double getMaxExtent() {
+    return getExtent(getBoundingBox(SEG_NORM, 0.0));
+  }
+
+  @Override
+  public double segmentLength() {
+    return segmentLength;
+  }
+
+  @Override
+  public void setColor(final Color color) {
+    // no color
+  }
+
+}
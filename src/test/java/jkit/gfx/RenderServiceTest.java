@@ -0,0 +1,105 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import jkit.gfx.pen.Pen;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link RenderService}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RenderServiceTest {
+
+  /** The number of requests. */
+  private static final int REQUESTS = 24;
+
+  /**
+   * Creates a request drawing the test shape with all pens.
+   * 
+   * @param shape The shape.
+   * @param pens The pens.
+   * @return The request.
+   */
+  private static RenderRequest createRequest(final Shape shape, final Pen[] pens) {
+    final RenderRequest res = new RenderRequest(128, 128);
+    res.setView(new Rectangle2D.Double(0, 0, 256, 256));
+    for(final Pen pen : pens) {
+      res.add(shape, pen);
+    }
+    return res;
+  }
+
+  /**
+   * Tests that requests sharing pens look the same when rendered by several
+   * workers as when rendered by the calling thread.
+   * 
+   * @throws Exception When an error occurs.
+   */
+  @Test
+  public void sharedPensMatchCallerThread() throws Exception {
+    final RenderService service = new RenderService(4, 4, 4);
+    try {
+      service.setBatchSize(1);
+      final Shape shape = TiledRendererTest.createShape();
+      final Pen[] pens = TiledRendererTest.createPens();
+      final byte[] expected = service.render(createRequest(shape, pens));
+      final List<RenderRequest> requests = new ArrayList<>();
+      for(int i = 0; i < REQUESTS; ++i) {
+        requests.add(createRequest(shape, pens));
+      }
+      for(final Future<byte[]> f : service.submitAll(requests)) {
+        assertTrue(Arrays.equals(expected, f.get()));
+      }
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  /**
+   * Tests that all requests are rendered when the queue is full.
+   * 
+   * @throws Exception When an error occurs.
+   */
+  @Test
+  public void fullQueueRendersOnCaller() throws Exception {
+    final RenderService service = new RenderService(1, 1, 1);
+    try {
+      service.setBatchSize(2);
+      final Shape shape = TiledRendererTest.createShape();
+      final Pen[] pens = TiledRendererTest.createPens();
+      final List<RenderRequest> requests = new ArrayList<>();
+      for(int i = 0; i < REQUESTS; ++i) {
+        requests.add(createRequest(shape, pens));
+      }
+      final List<Future<byte[]>> res = service.submitAll(requests);
+      assertEquals(REQUESTS, res.size());
+      for(final Future<byte[]> f : res) {
+        assertTrue(f.get().length > 0);
+      }
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  /**
+   * Tests that requests are refused after shutting down.
+   */
+  @Test(expected = RejectedExecutionException.class)
+  public void submitAfterShutdown() {
+    final RenderService service = new RenderService(1, 1, 1);
+    service.shutdown();
+    service.submit(new RenderRequest(16, 16));
+  }
+
+}
@@ -0,0 +1,146 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Scene}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class SceneTest {
+
+  /** The size of the cells. */
+  private static final double CELL_SIZE = 10.0;
+
+  /**
+   * Creates a drawable with fixed bounds.
+   * 
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @param w The width.
+   * @param h The height.
+   * @return The drawable.
+   */
+  private static Drawable box(final double x, final double y, final double w,
+      final double h) {
+    return new Drawable() {
+
+      @Override
+      public void draw(final Graphics2D gfx) {
+        // nothing to draw
+      }
+
+      @Override
+      protected Rectangle2D computeBounds() {
+        return new Rectangle2D.Double(x, y, w, h);
+      }
+
+    };
+  }
+
+  /**
+   * Computes the visible drawables by testing every drawable.
+   * 
+   * @param all The drawables in drawing order.
+   * @param viewport The viewport.
+   * @return The visible drawables in drawing order.
+   */
+  private static List<Drawable> bruteForce(final List<Drawable> all,
+      final Rectangle2D viewport) {
+    final List<Drawable> res = new ArrayList<>();
+    for(final Drawable d : all) {
+      if(viewport.intersects(d.getConservativeBounds())) {
+        res.add(d);
+      }
+    }
+    return res;
+  }
+
+  /** Tests that a drawable spanning several cells is found once. */
+  @Test
+  public void spanningCells() {
+    final Scene scene = new Scene(CELL_SIZE);
+    final Drawable wide = box(-15, 5, 40, 20);
+    final Drawable small = box(2, 2, 1, 1);
+    scene.add(wide);
+    scene.add(small);
+    assertEquals(Arrays.asList(wide, small),
+        scene.getVisible(new Rectangle2D.Double(-20, -20, 60, 60)));
+    assertEquals(Collections.singletonList(wide),
+        scene.getVisible(new Rectangle2D.Double(20, 20, 1, 1)));
+    assertEquals(Collections.singletonList(wide),
+        scene.getVisible(new Rectangle2D.Double(-14, 10, 1, 1)));
+    assertTrue(scene.getVisible(new Rectangle2D.Double(30, 30, 5, 5)).isEmpty());
+  }
+
+  /** Tests drawables that are too large for the grid. */
+  @Test
+  public void largeDrawables() {
+    final Scene scene = new Scene(CELL_SIZE);
+    final double size = CELL_SIZE * (Scene.MAX_CELLS + 1);
+    final Drawable large = box(-size * 0.5, -size * 0.5, size, size);
+    final Drawable small = box(0, 0, 1, 1);
+    scene.add(small);
+    scene.add(large);
+    assertEquals(Arrays.asList(small, large),
+        scene.getVisible(new Rectangle2D.Double(0, 0, 2, 2)));
+    assertEquals(Collections.singletonList(large),
+        scene.getVisible(new Rectangle2D.Double(size * 0.4, size * 0.4, 1, 1)));
+    assertTrue(scene.getVisible(new Rectangle2D.Double(size, size, 1, 1)).isEmpty());
+    assertTrue(scene.remove(large));
+    assertFalse(scene.contains(large));
+    assertEquals(Collections.singletonList(small),
+        scene.getVisible(new Rectangle2D.Double(0, 0, 2, 2)));
+  }
+
+  /** Tests that adding a drawable again moves it to the top. */
+  @Test
+  public void addMovesToTop() {
+    final Scene scene = new Scene(CELL_SIZE);
+    final Drawable a = box(0, 0, 15, 15);
+    final Drawable b = box(5, 5, 15, 15);
+    scene.add(a);
+    scene.add(b);
+    scene.add(a);
+    assertEquals(2, scene.size());
+    assertEquals(Arrays.asList(b, a), scene.getVisible(new Rectangle2D.Double(6, 6, 1, 1)));
+  }
+
+  /** Tests random queries against testing every drawable. */
+  @Test
+  public void randomQueries() {
+    final Random rnd = new Random(42);
+    final Scene scene = new Scene(CELL_SIZE);
+    final List<Drawable> all = new ArrayList<>();
+    for(int i = 0; i < 500; ++i) {
+      final double w = rnd.nextDouble() < 0.05 ? rnd.nextDouble() * 2000 : rnd.nextDouble() * 30;
+      final double h = rnd.nextDouble() * 30;
+      final Drawable d = box(rnd.nextDouble() * 400 - 200, rnd.nextDouble() * 400 - 200, w, h);
+      scene.add(d);
+      all.add(d);
+    }
+    for(int i = 0; i < 100; ++i) {
+      final Drawable d = all.remove(rnd.nextInt(all.size()));
+      assertTrue(scene.remove(d));
+    }
+    assertEquals(all.size(), scene.size());
+    for(int i = 0; i < 200; ++i) {
+      // includes viewports larger than all occupied cells
+      final double s = rnd.nextDouble() < 0.1 ? 1000 : rnd.nextDouble() * 50;
+      final Rectangle2D view = new Rectangle2D.Double(
+          rnd.nextDouble() * 500 - 250, rnd.nextDouble() * 500 - 250, s, s);
+      assertEquals(bruteForce(all, view), scene.getVisible(view));
+    }
+  }
+
+}
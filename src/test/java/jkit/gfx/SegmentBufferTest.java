@@ -0,0 +1,303 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SegmentBuffer}. The expected values follow the
+ * segments that were created by {@link PenShapeDrawer} before segments were
+ * stored in buffers.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class SegmentBufferTest {
+
+  /** The allowed error of coordinates. */
+  private static final double EPS = 1e-9;
+
+  /**
+   * Records the pen-steps drawn for a shape.
+   * 
+   * @param shape The shape.
+   * @return The pen-steps.
+   */
+  private static List<String> record(final Shape shape) {
+    final RecordingPen pen = new RecordingPen(10.0);
+    final BufferedImage img = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    new PenShapeDrawer(pen).getDrawable(shape).draw(g);
+    g.dispose();
+    return pen.getSteps();
+  }
+
+  /** Tests the number of pen-steps of a segment. */
+  @Test
+  public void steps() {
+    assertEquals(1, SegmentBuffer.steps(0.0, 10.0));
+    assertEquals(1, SegmentBuffer.steps(4.0, 10.0));
+    assertEquals(1, SegmentBuffer.steps(14.9, 10.0));
+    assertEquals(2, SegmentBuffer.steps(15.0, 10.0));
+    assertEquals(3, SegmentBuffer.steps(30.0, 10.0));
+  }
+
+  /** Tests the flags of the segments of two lines. */
+  @Test
+  public void flags() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(30, 0);
+    path.lineTo(30, 40);
+    path.moveTo(100, 0);
+    path.lineTo(100, 0);
+    path.lineTo(110, 0);
+    path.closePath();
+    final SegmentBuffer segs = SegmentBuffer.create(path, 1.0);
+    assertEquals(7, segs.size());
+    // move
+    assertFalse(segs.isDrawn(0));
+    // first line
+    assertTrue(segs.isDrawn(1));
+    assertTrue(segs.isFirst(1));
+    assertFalse(segs.isLast(1));
+    assertEquals(30.0, segs.len(1), EPS);
+    assertEquals(0.0, segs.rot(1), EPS);
+    assertTrue(segs.isDrawn(2));
+    assertFalse(segs.isFirst(2));
+    assertTrue(segs.isLast(2));
+    assertEquals(40.0, segs.len(2), EPS);
+    assertEquals(Math.PI * 0.5, segs.rot(2), EPS);
+    assertEquals(30.0, segs.x(2), EPS);
+    assertEquals(0.0, segs.y(2), EPS);
+    // second line starting with a no-op
+    assertFalse(segs.isDrawn(3));
+    assertFalse(segs.isDrawn(4));
+    assertTrue(segs.isFirst(4));
+    assertTrue(segs.isDrawn(5));
+    assertFalse(segs.isFirst(5));
+    assertFalse(segs.isLast(5));
+    // closing segment
+    assertTrue(segs.isDrawn(6));
+    assertTrue(segs.isLast(6));
+    assertEquals(10.0, segs.len(6), EPS);
+    assertEquals(Math.PI, segs.rot(6), 0.002);
+  }
+
+  /** Tests the pen-steps of two lines. */
+  @Test
+  public void penSteps() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(30, 0);
+    path.lineTo(30, 30);
+    path.moveTo(100, 0);
+    path.lineTo(105, 0);
+    assertEquals(Arrays.asList("start:0", "draw:1", "draw:2", "draw:3", "draw:4", "end:5",
+        "start:6"), record(path));
+  }
+
+  /**
+   * Tests that a no-op segment before a move takes the end of the line like
+   * it always did.
+   */
+  @Test
+  public void noOpBeforeMove() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(20, 0);
+    path.lineTo(20, 0);
+    path.moveTo(50, 0);
+    path.lineTo(60, 0);
+    assertEquals(Arrays.asList("start:0", "draw:1", "start:2"), record(path));
+  }
+
+  /**
+   * Counts the drawn segments.
+   * 
+   * @param segs The segments.
+   * @return The number of drawn segments.
+   */
+  private static int drawn(final SegmentBuffer segs) {
+    int res = 0;
+    for(int i = 0; i < segs.size(); ++i) {
+      if(segs.isDrawn(i)) {
+        ++res;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Creates a polyline.
+   * 
+   * @param path The path receiving the polyline.
+   * @param points The vertices as x, y pairs.
+   */
+  private static void polyline(final Path2D path, final double... points) {
+    path.moveTo(points[0], points[1]);
+    for(int k = 2; k < points.length; k += 2) {
+      path.lineTo(points[k], points[k + 1]);
+    }
+  }
+
+  /**
+   * Obtains the vertices of the lines of the segments.
+   * 
+   * @param segs The segments.
+   * @return The vertices of every line. The end of a line is computed from
+   *         the rotation of its last segment and is therefore approximate.
+   */
+  private static List<List<double[]>> lines(final SegmentBuffer segs) {
+    final List<List<double[]>> res = new ArrayList<>();
+    List<double[]> cur = null;
+    for(int i = 0; i < segs.size(); ++i) {
+      if(!segs.isDrawn(i)) {
+        continue;
+      }
+      if(cur == null || segs.isFirst(i)) {
+        cur = new ArrayList<>();
+        res.add(cur);
+        cur.add(new double[] { segs.x(i), segs.y(i)});
+      }
+      final int next = i + 1;
+      if(next < segs.size() && segs.isDrawn(next) && !segs.isFirst(next)) {
+        cur.add(new double[] { segs.x(next), segs.y(next)});
+      } else {
+        cur.add(new double[] { segs.x(i) + segs.len(i) * Math.cos(segs.rot(i)),
+            segs.y(i) + segs.len(i) * Math.sin(segs.rot(i))});
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Computes the distance of a point from a polyline.
+   * 
+   * @param line The vertices of the polyline.
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return The distance.
+   */
+  private static double distance(final List<double[]> line, final double x,
+      final double y) {
+    double res = Double.POSITIVE_INFINITY;
+    for(int k = 1; k < line.size(); ++k) {
+      final double[] a = line.get(k - 1);
+      final double[] b = line.get(k);
+      final double dx = b[0] - a[0];
+      final double dy = b[1] - a[1];
+      final double sq = dx * dx + dy * dy;
+      final double t = sq > 0.0 ? Math.min(Math.max(
+          ((x - a[0]) * dx + (y - a[1]) * dy) / sq, 0.0), 1.0) : 0.0;
+      res = Math.min(res, Math.hypot(x - a[0] - t * dx, y - a[1] - t * dy));
+    }
+    return res;
+  }
+
+  /** Tests the number and positions of resampled segments. */
+  @Test
+  public void resampleSteps() {
+    final Path2D path = new Path2D.Double();
+    // length 45 with a joint between two samples
+    polyline(path, 0, 0, 25, 0, 25, 20);
+    // length 30 ending exactly on a sample
+    polyline(path, 100, 0, 110, 0, 110, 10, 100, 10);
+    // length 3 is shorter than a segment
+    polyline(path, 200, 0, 203, 0);
+    final SegmentBuffer segs = SegmentBuffer.resample(SegmentBuffer.create(path, 1.0), 10.0);
+    assertEquals(5 + 3 + 1, drawn(segs));
+    final double[][] starts = {
+        { 0, 0}, { 10, 0}, { 20, 0}, { 25, 5}, { 25, 15},
+        { 100, 0}, { 110, 0}, { 110, 10},
+        { 200, 0},
+    };
+    final double[] lens = { 10, 10, Math.sqrt(50), 10, 5, 10, 10, 10, 3};
+    int k = 0;
+    for(int i = 0; i < segs.size(); ++i) {
+      if(!segs.isDrawn(i)) {
+        continue;
+      }
+      assertEquals(starts[k][0], segs.x(i), EPS);
+      assertEquals(starts[k][1], segs.y(i), EPS);
+      assertEquals(lens[k], segs.len(i), EPS);
+      // every resampled segment has exactly one pen-step
+      assertEquals(1, SegmentBuffer.steps(segs.len(i), 10.0));
+      ++k;
+    }
+    assertTrue(segs.isFirst(1));
+    assertTrue(segs.isLast(5));
+  }
+
+  /** Tests the number of resampled segments of lines with known lengths. */
+  @Test
+  public void resampleCounts() {
+    for(int n = 1; n <= 20; ++n) {
+      for(final double segLen : new double[] { 1.0, 3.0, 7.5}) {
+        // a zig-zag line of n diagonals of length 5
+        final Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        for(int k = 1; k <= n; ++k) {
+          path.lineTo(k * 3.0, k % 2 == 0 ? 0.0 : 4.0);
+        }
+        final double len = n * 5.0;
+        final SegmentBuffer segs = SegmentBuffer.resample(
+            SegmentBuffer.create(path, 1.0), segLen);
+        assertEquals(n + " " + segLen, (int) Math.ceil(len / segLen - 1e-9), drawn(segs));
+      }
+    }
+  }
+
+  /** Tests that simplification keeps the ends of lines and the tolerance. */
+  @Test
+  public void simplifyTolerance() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    for(int i = 1; i <= 300; ++i) {
+      // a noisy wave
+      path.lineTo(i * 2.0, Math.sin(i * 0.05) * 50.0 + ((i * 7919) % 13 - 6) * 0.5);
+    }
+    polyline(path, 1000, 0, 1001, 1, 1003, 0, 1004, 1);
+    final SegmentBuffer orig = SegmentBuffer.create(path, 1.0);
+    final List<List<double[]>> expected = lines(orig);
+    for(final double tolerance : new double[] { 0.5, 2.0, 8.0}) {
+      final SegmentBuffer simple = SegmentBuffer.simplify(orig, tolerance);
+      final List<List<double[]>> actual = lines(simple);
+      assertEquals(expected.size(), actual.size());
+      assertTrue(drawn(simple) < drawn(orig));
+      for(int l = 0; l < expected.size(); ++l) {
+        final List<double[]> e = expected.get(l);
+        final List<double[]> a = actual.get(l);
+        // the ends are kept
+        assertArrayEquals(e.get(0), a.get(0), EPS);
+        assertArrayEquals(e.get(e.size() - 1), a.get(a.size() - 1), 0.05);
+        for(final double[] p : e) {
+          final double d = distance(a, p[0], p[1]);
+          assertTrue(tolerance + ": " + d, d <= tolerance + 0.05);
+        }
+      }
+    }
+  }
+
+  /** Tests that collinear runs are merged but reversals are kept. */
+  @Test
+  public void simplifyCollinear() {
+    final Path2D path = new Path2D.Double();
+    polyline(path, 0, 0, 10, 0, 20, 0, 30, 0, 30, 10, 30, 20);
+    polyline(path, 100, 0, 110, 0, 105, 0);
+    final SegmentBuffer segs = SegmentBuffer.simplify(SegmentBuffer.create(path, 1.0), 0.0);
+    assertEquals(2 + 2, drawn(segs));
+    final List<List<double[]>> lines = lines(segs);
+    assertEquals(2, lines.size());
+    assertArrayEquals(new double[] { 30, 0}, lines.get(0).get(1), EPS);
+    assertArrayEquals(new double[] { 110, 0}, lines.get(1).get(1), EPS);
+  }
+
+}
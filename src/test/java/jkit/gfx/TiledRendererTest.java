@@ -0,0 +1,145 @@
+package jkit.gfx;
+
+import static org.junit.Assert.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jkit.gfx.pen.ArrowPen;
+import jkit.gfx.pen.BloodTrailPen;
+import jkit.gfx.pen.CrayonPen;
+import jkit.gfx.pen.LinePen;
+import jkit.gfx.pen.Pen;
+import jkit.gfx.pen.PencilPen;
+import jkit.gfx.pen.SnowPen;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TiledRenderer}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class TiledRendererTest {
+
+  /** The size of the image. */
+  private static final int SIZE = 256;
+
+  /** The width and height of a tile. */
+  private static final int TILE_SIZE = 32;
+
+  /** The number of tiled renderings compared to the reference. */
+  private static final int RUNS = 6;
+
+  /**
+   * Creates the test shape.
+   * 
+   * @return A shape with lines and curves in all directions.
+   */
+  static Shape createShape() {
+    final Path2D path = new Path2D.Double();
+    path.moveTo(20, 200);
+    path.lineTo(60, 40);
+    path.quadTo(120, 10, 180, 60);
+    path.curveTo(240, 110, 240, 200, 160, 230);
+    path.lineTo(40, 120);
+    path.moveTo(100, 100);
+    path.lineTo(150, 150);
+    path.closePath();
+    return path;
+  }
+
+  /**
+   * Creates the pens drawn concurrently.
+   * 
+   * @return The pens.
+   */
+  static Pen[] createPens() {
+    return new Pen[] {
+        new BloodTrailPen(),
+
+        new SnowPen(new SimpleShapeDrawer(new BasicStroke(5f), Color.BLACK), 5.0, 2.0,
+            45, true),
+
+        new CrayonPen(Color.GREEN, 5.0),
+
+        new PencilPen(),
+
+        new ArrowPen(),
+
+        new LinePen(),
+    };
+  }
+
+  /**
+   * Renders a drawable.
+   * 
+   * @param renderer The renderer.
+   * @param drawable The drawable.
+   * @return The image.
+   * @throws InterruptedException When interrupted.
+   */
+  private static BufferedImage render(final TiledRenderer renderer,
+      final Drawable drawable) throws InterruptedException {
+    return renderer.render(Collections.singletonList(drawable),
+        new Rectangle2D.Double(0, 0, SIZE, SIZE), SIZE, SIZE);
+  }
+
+  /**
+   * Asserts that two images are equal.
+   * 
+   * @param msg The message.
+   * @param expected The expected image.
+   * @param actual The actual image.
+   */
+  static void assertImageEquals(final String msg, final BufferedImage expected,
+      final BufferedImage actual) {
+    assertEquals(msg, expected.getWidth(), actual.getWidth());
+    assertEquals(msg, expected.getHeight(), actual.getHeight());
+    for(int y = 0; y < expected.getHeight(); ++y) {
+      for(int x = 0; x < expected.getWidth(); ++x) {
+        if(expected.getRGB(x, y) != actual.getRGB(x, y)) {
+          fail(msg + ": pixel differs at " + x + ", " + y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that a drawable drawn by many tiles at once looks the same as when
+   * the same tiles are drawn one after another by a single thread. A drawable
+   * is compared to itself only with the same tiles since clipping may change
+   * the rasterization of the outline.
+   * 
+   * @throws Exception When an error occurs.
+   */
+  @Test
+  public void tiledMatchesSingleThreaded() throws Exception {
+    final ExecutorService one = Executors.newSingleThreadExecutor();
+    final ExecutorService many = Executors.newFixedThreadPool(8);
+    try {
+      final TiledRenderer single = new TiledRenderer(one, TILE_SIZE);
+      final TiledRenderer tiled = new TiledRenderer(many, TILE_SIZE);
+      final Shape shape = createShape();
+      for(final Pen pen : createPens()) {
+        final PenShapeDrawer drawer = new PenShapeDrawer(pen);
+        final String name = pen.getClass().getSimpleName();
+        final BufferedImage expected = render(single, drawer.getDrawable(shape));
+        for(int i = 0; i < RUNS; ++i) {
+          assertImageEquals(name, expected, render(tiled, drawer.getDrawable(shape)));
+        }
+      }
+    } finally {
+      one.shutdown();
+      many.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+package jkit.gfx.pen;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+
+import jkit.gfx.PenShapeDrawer;
+import jkit.gfx.RenderMetrics;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CachedRandomPen}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class CachedRandomPenTest {
+
+  /**
+   * Draws a horizontal line with the pen onto a new image.
+   * 
+   * @param pen The pen.
+   * @param metrics The metrics.
+   * @param at The transformation.
+   * @return The image.
+   */
+  private static BufferedImage draw(final Pen pen, final RenderMetrics metrics,
+      final AffineTransform at) {
+    final PenShapeDrawer drawer = new PenShapeDrawer(pen);
+    drawer.setMetrics(metrics);
+    final BufferedImage img = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.transform(at);
+    drawer.getDrawable(new Line2D.Double(10, 50, 190, 50)).draw(g);
+    g.dispose();
+    return img;
+  }
+
+  /**
+   * Asserts that two images have the same pixels.
+   * 
+   * @param expected The expected image.
+   * @param actual The actual image.
+   */
+  private static void assertPixels(final BufferedImage expected,
+      final BufferedImage actual) {
+    final int w = expected.getWidth();
+    final int h = expected.getHeight();
+    assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w),
+        actual.getRGB(0, 0, w, h, null, 0, w));
+  }
+
+  /** Tests that sprites of an old atlas generation are rendered again. */
+  @Test
+  public void atlasGeneration() {
+    final AffineTransform at = new AffineTransform();
+    final BufferedImage expected = draw(new CrayonPen(Color.BLACK, 5.0),
+        new RenderMetrics(), at);
+    // the atlas only holds a few sprites
+    final SpriteAtlas atlas = new SpriteAtlas(32, 32);
+    final CrayonPen pen = new CrayonPen(Color.BLACK, 5.0);
+    pen.setAtlas(atlas);
+    final RenderMetrics m = new RenderMetrics();
+    assertPixels(expected, draw(pen, m, at));
+    final int gen = atlas.getGeneration();
+    assertTrue(gen > 0);
+    final long misses = m.getCacheMisses();
+    assertPixels(expected, draw(pen, m, at));
+    assertTrue(atlas.getGeneration() > gen);
+    assertTrue(m.getCacheMisses() > misses);
+    // a large atlas keeps the sprites of the first drawing
+    pen.setAtlas(new SpriteAtlas());
+    draw(pen, m, at);
+    final long all = m.getCacheMisses();
+    assertPixels(expected, draw(pen, m, at));
+    assertEquals(all, m.getCacheMisses());
+  }
+
+  /** Tests the cache counters of the metrics when drawing. */
+  @Test
+  public void metrics() {
+    final CrayonPen pen = new CrayonPen(Color.BLACK, 5.0);
+    final RenderMetrics m = new RenderMetrics();
+    final AffineTransform at = new AffineTransform();
+    draw(pen, m, at);
+    final long steps = m.getStepsDrawn();
+    assertTrue(steps > 0);
+    // every step is either taken from the cache or cached
+    assertEquals(steps, m.getCacheHits() + m.getCacheMisses());
+    final long misses = m.getCacheMisses();
+    assertTrue(misses > 0);
+    assertTrue(misses <= CachedRandomPen.DEFAULT_CACHE_SIZE);
+    assertEquals(0, m.getCacheInvalidations());
+    final long hits = m.getCacheHits();
+    draw(pen, m, at);
+    assertEquals(misses, m.getCacheMisses());
+    assertEquals(hits + steps, m.getCacheHits());
+    pen.setThickness(6.0);
+    assertEquals(1, m.getCacheInvalidations());
+    draw(pen, m, at);
+    assertEquals(misses * 2, m.getCacheMisses());
+    // the cache is empty already
+    pen.setThickness(6.5);
+    pen.setThickness(7.0);
+    assertEquals(2, m.getCacheInvalidations());
+  }
+
+  /** Tests which transformations use the device space cache. */
+  @Test
+  public void similarity() {
+    assertTrue(CachedRandomPen.isSimilarity(new AffineTransform()));
+    final AffineTransform at = AffineTransform.getTranslateInstance(3.5, -7.0);
+    at.rotate(0.7);
+    at.scale(2.5, 2.5);
+    assertTrue(CachedRandomPen.isSimilarity(at));
+    assertTrue(CachedRandomPen.isSimilarity(AffineTransform.getRotateInstance(Math.PI)));
+    assertFalse(CachedRandomPen.isSimilarity(AffineTransform.getScaleInstance(2.0, 1.0)));
+    assertFalse(CachedRandomPen.isSimilarity(AffineTransform.getShearInstance(0.1, 0.0)));
+    // reflections are not cached
+    assertFalse(CachedRandomPen.isSimilarity(AffineTransform.getScaleInstance(1.0, -1.0)));
+    assertFalse(CachedRandomPen.isSimilarity(AffineTransform.getScaleInstance(0.0, 0.0)));
+  }
+
+  /** Tests that the device space cache is dropped when the scale changes. */
+  @Test
+  public void deviceCache() {
+    final CrayonPen pen = new CrayonPen(Color.BLACK, 5.0);
+    pen.setRotations(16);
+    final RenderMetrics m = new RenderMetrics();
+    final AffineTransform at = AffineTransform.getRotateInstance(0.3, 100, 50);
+    draw(pen, m, at);
+    assertEquals(0, m.getCacheInvalidations());
+    final long misses = m.getCacheMisses();
+    assertTrue(misses > 0);
+    draw(pen, m, at);
+    assertEquals(misses, m.getCacheMisses());
+    // another rotation at the same scale keeps the cache
+    draw(pen, m, AffineTransform.getRotateInstance(-0.3, 100, 50));
+    assertEquals(0, m.getCacheInvalidations());
+    final long rotated = m.getCacheMisses();
+    final AffineTransform scaled = new AffineTransform(at);
+    scaled.scale(0.5, 0.5);
+    draw(pen, m, scaled);
+    assertEquals(1, m.getCacheInvalidations());
+    assertTrue(m.getCacheMisses() > rotated);
+    // transformations that are no similarities use the segment space cache
+    draw(pen, m, AffineTransform.getScaleInstance(1.0, 0.5));
+    assertEquals(1, m.getCacheInvalidations());
+  }
+
+}
@@ -0,0 +1,108 @@
+package jkit.gfx.pen;
+
+import static org.junit.Assert.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
+import jkit.gfx.SimpleShapeDrawer;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PenAdapter}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class PenAdapterTest {
+
+  /** The number of rotations at which the bounding boxes are checked. */
+  private static final int ROTATIONS = 3600;
+
+  /**
+   * Checks that the maximal extent covers every bounding box.
+   * 
+   * @param pen The pen.
+   */
+  private static void assertCoversBoxes(final Pen pen) {
+    final String name = pen.getClass().getSimpleName();
+    final double ext = pen.getMaxExtent();
+    for(int k = 0; k < ROTATIONS; ++k) {
+      // the shape drawers produce rotations in this range
+      final double rot = k * Math.PI * 2.0 / ROTATIONS - Math.PI * 0.5;
+      for(final int type : new int[] { Pen.SEG_START, Pen.SEG_NORM, Pen.SEG_END}) {
+        final double e = PenAdapter.getExtent(pen.getBoundingBox(type, rot));
+        assertTrue(name + " " + rot + ": " + e + " > " + ext, e <= ext);
+      }
+    }
+  }
+
+  /** Tests the extent of a pen whose boxes depend on the rotation. */
+  @Test
+  public void rotatingExtent() {
+    assertCoversBoxes(new PenAdapter() {
+
+      @Override
+      public void prepare(final Graphics2D g, final Shape s) {
+        // nothing to do
+      }
+
+      @Override
+      public void draw(final Graphics2D g, final int no, final double rotation) {
+        // nothing to do
+      }
+
+      @Override
+      public Rectangle2D getBoundingBox(final int type, final double rotation) {
+        // the box is largest at rotations that sampling would miss
+        final double w = 10.0 + 2.0 * Math.abs(Math.sin(rotation * 96.0));
+        return new Rectangle2D.Double(0.0, -1.0, w, 2.0);
+      }
+
+      @Override
+      public double getMaxExtent() {
+        // covers the boxes of every rotation
+        return getExtent(new Rectangle2D.Double(0.0, -1.0, 12.0, 2.0));
+      }
+
+      @Override
+      public double segmentLength() {
+        return 10.0;
+      }
+
+      @Override
+      public void setColor(final Color color) {
+        // nothing to do
+      }
+
+    });
+  }
+
+  /** Tests the extents of the bundled pens. */
+  @Test
+  public void bundledExtents() {
+    final Pen[] pens = {
+        new BloodTrailPen(),
+
+        new SnowPen(new SimpleShapeDrawer(new BasicStroke(5f), Color.BLACK), 5.0, 2.0,
+            45, true),
+
+        new CrayonPen(Color.GREEN, 5.0),
+
+        new PencilPen(),
+
+        new ArrowPen(),
+
+        new LinePen(),
+
+        new CirclePen(),
+    };
+    for(final Pen pen : pens) {
+      assertCoversBoxes(pen);
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package jkit.gfx.pen;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link RandomSource}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class RandomSourceTest {
+
+  /** The number of samples for statistical tests. */
+  private static final int SAMPLES = 400000;
+
+  /** Tests the first value against the reference SplitMix64 output. */
+  @Test
+  public void splitMix() {
+    assertEquals(0xE220A8397B1DCDAFL, new RandomSource(0L).nextLong());
+  }
+
+  /** Tests that reseeding repeats the sequence of mixed requests. */
+  @Test
+  public void determinism() {
+    final RandomSource rnd = new RandomSource();
+    final double[] first = new double[300];
+    for(int seed = -5; seed < 5; ++seed) {
+      rnd.setSeed(seed);
+      for(int i = 0; i < first.length; i += 3) {
+        first[i] = rnd.nextGaussian();
+        first[i + 1] = rnd.nextDouble();
+        first[i + 2] = rnd.nextInt(17);
+      }
+      // consume values to change the state
+      rnd.nextGaussian();
+      rnd.setSeed(seed);
+      for(int i = 0; i < first.length; i += 3) {
+        assertEquals(first[i], rnd.nextGaussian(), 0.0);
+        assertEquals(first[i + 1], rnd.nextDouble(), 0.0);
+        assertEquals(first[i + 2], rnd.nextInt(17), 0.0);
+      }
+      final RandomSource other = new RandomSource(seed);
+      assertEquals(first[0], other.nextGaussian(), 0.0);
+    }
+    assertTrue(new RandomSource(1).nextLong() != new RandomSource(2).nextLong());
+  }
+
+  /** Tests the ranges of uniform values. */
+  @Test
+  public void ranges() {
+    final RandomSource rnd = new RandomSource(7);
+    final int[] counts = new int[10];
+    double sum = 0.0;
+    for(int i = 0; i < SAMPLES; ++i) {
+      final double d = rnd.nextDouble();
+      assertTrue(d >= 0.0 && d < 1.0);
+      sum += d;
+      ++counts[rnd.nextInt(counts.length)];
+    }
+    assertEquals(0.5, sum / SAMPLES, 0.005);
+    for(final int c : counts) {
+      assertEquals(SAMPLES / counts.length, c, SAMPLES / counts.length * 0.05);
+    }
+  }
+
+  /** Tests the mean, variance, and tails of gaussian values. */
+  @Test
+  public void gaussian() {
+    final RandomSource rnd = new RandomSource(42);
+    double sum = 0.0;
+    double sq = 0.0;
+    int inside = 0;
+    int tails = 0;
+    for(int i = 0; i < SAMPLES; ++i) {
+      final double x = rnd.nextGaussian();
+      sum += x;
+      sq += x * x;
+      if(Math.abs(x) < 1.0) {
+        ++inside;
+      }
+      if(Math.abs(x) > 3.0) {
+        ++tails;
+      }
+    }
+    final double mean = sum / SAMPLES;
+    final double var = sq / SAMPLES - mean * mean;
+    assertEquals(0.0, mean, 0.01);
+    assertEquals(1.0, var, 0.02);
+    assertEquals(0.6827, (double) inside / SAMPLES, 0.005);
+    assertEquals(0.0027, (double) tails / SAMPLES, 0.0005);
+  }
+
+}
@@ -0,0 +1,46 @@
+package jkit.gfx.pen;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SpriteAtlas}.
+ * 
+ * @author Joschi <josua.krause@gmail.com>
+ */
+public class SpriteAtlasTest {
+
+  /** Tests that a full atlas starts a new generation. */
+  @Test
+  public void generation() {
+    // two rows of two sprites fit with padding
+    final SpriteAtlas atlas = new SpriteAtlas(32, 32);
+    final Sprite[] first = new Sprite[4];
+    for(int i = 0; i < first.length; ++i) {
+      first[i] = atlas.allocate(10, 10);
+      assertTrue(first[i].isValid());
+    }
+    assertEquals(0, atlas.getGeneration());
+    final Sprite next = atlas.allocate(10, 10);
+    assertEquals(1, atlas.getGeneration());
+    assertTrue(next.isValid());
+    for(final Sprite s : first) {
+      assertFalse(s.isValid());
+    }
+    atlas.clear();
+    assertEquals(2, atlas.getGeneration());
+    assertFalse(next.isValid());
+  }
+
+  /** Tests that sprites larger than the atlas are not allocated. */
+  @Test
+  public void tooLarge() {
+    final SpriteAtlas atlas = new SpriteAtlas(32, 16);
+    assertNull(atlas.allocate(32, 10));
+    assertNull(atlas.allocate(10, 16));
+    assertNotNull(atlas.allocate(31, 15));
+    assertEquals(0, atlas.getGeneration());
+  }
+
+}